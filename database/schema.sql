@@ -9,7 +9,8 @@ CREATE TABLE IF NOT EXISTS legal_categories (
     category_id INT AUTO_INCREMENT PRIMARY KEY,
     category_name VARCHAR(100) NOT NULL UNIQUE,
     description TEXT,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
 -- Table: legal_qa (Question-Answer pairs for chatbot)
@@ -23,7 +24,9 @@ CREATE TABLE IF NOT EXISTS legal_qa (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (category_id) REFERENCES legal_categories(category_id) ON DELETE SET NULL,
-    INDEX idx_keywords (keywords(255))
+    INDEX idx_keywords (keywords(255)),
+    INDEX idx_updated_at (updated_at),
+    FULLTEXT INDEX ft_qa_text (question, answer, keywords)
 );
 
 -- Table: legal_rights (Rights information hub)
@@ -37,7 +40,8 @@ CREATE TABLE IF NOT EXISTS legal_rights (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (category_id) REFERENCES legal_categories(category_id) ON DELETE SET NULL,
-    INDEX idx_title (title)
+    INDEX idx_title (title),
+    FULLTEXT INDEX ft_rights_text (title, description, details)
 );
 
 -- Table: document_templates
@@ -51,6 +55,13 @@ CREATE TABLE IF NOT EXISTS document_templates (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
+-- Table: import_checkpoints (Progress of bulk imports, committed together with each chunk of rows)
+CREATE TABLE IF NOT EXISTS import_checkpoints (
+    source VARCHAR(700) PRIMARY KEY,
+    records_done BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
 -- Table: chat_history (User conversation history)
 CREATE TABLE IF NOT EXISTS chat_history (
     chat_id INT AUTO_INCREMENT PRIMARY KEY,
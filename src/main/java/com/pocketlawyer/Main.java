@@ -1,19 +1,38 @@
 package com.pocketlawyer;
 
+import com.pocketlawyer.dao.LegalQADAO;
+import com.pocketlawyer.service.BulkImporter;
+import com.pocketlawyer.service.DuplicateCluster;
+import com.pocketlawyer.service.ImportStats;
+import com.pocketlawyer.service.NearDuplicateDetector;
 import com.pocketlawyer.ui.MainFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Main entry point for AI Pocket Lawyer application
+ * Run with --import <legal_qa|legal_rights> <file> [--restart] [--skip-duplicates]
+ * to bulk import a CSV or JSON Lines file, or with --report-duplicates to list
+ * near-duplicate Q&A pairs, instead of starting the UI.
  */
 public class Main {
     
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
     
     public static void main(String[] args) {
+        if (args.length > 0 && "--import".equals(args[0])) {
+            System.exit(runImport(args) ? 0 : 1);
+        }
+        if (args.length > 0 && "--report-duplicates".equals(args[0])) {
+            reportDuplicates();
+            System.exit(0);
+        }
+        
         logger.info("Starting AI Pocket Lawyer application...");
         
         // Set system properties for better UI rendering
@@ -38,4 +57,37 @@ public class Main {
             }
         });
     }
+    
+    /**
+     * Run a bulk import from the command line
+     */
+    private static boolean runImport(String[] args) {
+        BulkImporter.Target target = args.length > 2 ? BulkImporter.Target.fromTableName(args[1]) : null;
+        List<String> options = Arrays.asList(args).subList(Math.min(args.length, 3), args.length);
+        boolean restart = options.contains("--restart");
+        boolean skipDuplicates = options.contains("--skip-duplicates");
+        if (target == null || options.size() != (restart ? 1 : 0) + (skipDuplicates ? 1 : 0)) {
+            System.err.println("Usage: --import <legal_qa|legal_rights> <file.csv|file.jsonl> "
+                + "[--restart] [--skip-duplicates]");
+            return false;
+        }
+        
+        BulkImporter importer = new BulkImporter();
+        importer.setSkipNearDuplicates(skipDuplicates);
+        ImportStats stats = importer.importFile(Paths.get(args[2]), target, restart);
+        return stats.isFinished();
+    }
+    
+    /**
+     * Print the clusters of near-duplicate Q&A pairs in legal_qa
+     */
+    private static void reportDuplicates() {
+        List<DuplicateCluster> clusters = NearDuplicateDetector.findClusters(new LegalQADAO().getAllQAWithoutAnswers());
+        for (DuplicateCluster cluster : clusters) {
+            System.out.println("qa_id " + cluster.getRepresentative().getQaId() + ": "
+                + cluster.getRepresentative().getQuestion());
+            cluster.getDuplicates().forEach(qa -> System.out.println("    qa_id " + qa.getQaId() + ": " + qa.getQuestion()));
+        }
+        System.out.println(clusters.size() + " clusters of near-duplicate Q&A pairs");
+    }
 }
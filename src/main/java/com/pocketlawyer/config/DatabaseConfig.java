@@ -7,18 +7,55 @@ package com.pocketlawyer.config;
 public class DatabaseConfig {
     
     // Database connection parameters
-    public static final String DB_URL = "jdbc:mysql://localhost:3306/pocket_lawyer";
+    // rewriteBatchedStatements turns a batch of INSERTs into multi-row statements
+    public static final String DB_URL = "jdbc:mysql://localhost:3306/pocket_lawyer?rewriteBatchedStatements=true";
     public static final String DB_USER = "root";
     public static final String DB_PASSWORD = ""; // Update with your MySQL password
     
     // Connection pool settings
     public static final int MAX_CONNECTIONS = 10;
     public static final int CONNECTION_TIMEOUT = 30000; // 30 seconds
+    public static final int IDLE_TIMEOUT = 600000; // 10 minutes
+    public static final int VALIDATION_TIMEOUT = 5; // seconds
     
     // Application settings
     public static final String APP_NAME = "AI Pocket Lawyer";
     public static final String APP_VERSION = "1.0.0";
     
+    // Default timeout of asynchronous DAO calls; their statements are cancelled when it passes
+    public static final long QUERY_TIMEOUT_SECONDS = Long.getLong("pocketlawyer.queryTimeoutSeconds", 30);
+    
+    // Caches of categories and templates: entries per table, and seconds between probes of the
+    // tables for changes, which clear a table's cache; 0 turns the caches off
+    public static final int CACHE_MAX_ENTRIES = 256;
+    public static final long CACHE_PROBE_SECONDS = Long.getLong("pocketlawyer.cacheProbeSeconds", 30);
+    
+    // Prebuilt chatbot index, reused across launches while legal_qa is unchanged; each save
+    // writes the next generation of it, knowledge.idx.1, knowledge.idx.2 and so on
+    public static final String KNOWLEDGE_INDEX_FILE =
+        System.getProperty("user.home") + "/.pocket-lawyer/knowledge.idx";
+    
+    // Seconds between incremental refreshes of the chatbot knowledge base; 0 turns them off
+    public static final long KNOWLEDGE_REFRESH_SECONDS = Long.getLong("pocketlawyer.knowledgeRefreshSeconds", 60);
+    
+    // How far before the index's latest updated_at a refresh re-reads rows, to catch transactions that commit late
+    public static final long KNOWLEDGE_REFRESH_COMMIT_LAG_SECONDS =
+        Long.getLong("pocketlawyer.knowledgeRefreshCommitLagSeconds", 300);
+    
+    // Search rights and Q&A with MATCH ... AGAINST on their FULLTEXT indexes instead of LIKE
+    public static final boolean FULLTEXT_SEARCH =
+        Boolean.parseBoolean(System.getProperty("pocketlawyer.fullTextSearch", "true"));
+    
+    // Answer with one representative of each cluster of near-duplicate Q&A pairs
+    public static final boolean COLLAPSE_NEAR_DUPLICATES = Boolean.getBoolean("pocketlawyer.collapseNearDuplicates");
+    
+    // Bulk import: rows sent per JDBC batch, and rows committed per transaction and checkpoint
+    public static final int IMPORT_BATCH_SIZE = 500;
+    public static final int IMPORT_CHUNK_SIZE = 5000;
+    
+    // Rows per round trip when streaming through a driver other than MySQL Connector/J
+    public static final int STREAM_FETCH_SIZE = 1000;
+    
     private DatabaseConfig() {
         // Private constructor to prevent instantiation
     }
@@ -0,0 +1,151 @@
+package com.pocketlawyer.dao;
+
+import com.pocketlawyer.config.DatabaseConfig;
+import com.pocketlawyer.database.DatabaseManager;
+import com.pocketlawyer.model.LegalQA;
+import com.pocketlawyer.model.LegalRight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.List;
+
+/**
+ * Data Access Object for bulk imports into legal_qa and legal_rights
+ * Rows are written in chunks: each chunk is sent as JDBC batches and committed
+ * in one transaction together with the import's checkpoint, so after a failure
+ * the checkpoint tells exactly how many source records are already in the table.
+ */
+public class BulkImportDAO {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportDAO.class);
+    private final DatabaseManager dbManager;
+    
+    public BulkImportDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+    
+    /**
+     * Get the number of source records committed by an earlier run of an import
+     * Returns 0 for a new import, or -1 if the database cannot be queried.
+     */
+    public long getCheckpoint(String source) {
+        String query = "SELECT records_done FROM import_checkpoints WHERE source = ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setString(1, source);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+            
+        } catch (SQLException e) {
+            logger.error("Error reading import checkpoint for {}", source, e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Forget the checkpoint of an import, so the next run starts from the first record
+     */
+    public boolean clearCheckpoint(String source) {
+        String query = "DELETE FROM import_checkpoints WHERE source = ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setString(1, source);
+            pstmt.executeUpdate();
+            return true;
+            
+        } catch (SQLException e) {
+            logger.error("Error clearing import checkpoint for {}", source, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Insert a chunk of Q&A pairs and move the checkpoint to recordsDone in one transaction
+     */
+    public boolean importQAChunk(String source, long recordsDone, List<LegalQA> qaList) {
+        String query = "INSERT INTO legal_qa (category_id, question, answer, keywords, priority) " +
+                      "VALUES (?, ?, ?, ?, ?)";
+        
+        return importChunk(query, source, recordsDone, qaList, (pstmt, qa) -> {
+            setCategoryId(pstmt, 1, qa.getCategoryId());
+            pstmt.setString(2, qa.getQuestion());
+            pstmt.setString(3, qa.getAnswer());
+            pstmt.setString(4, qa.getKeywords());
+            pstmt.setInt(5, qa.getPriority());
+        });
+    }
+    
+    /**
+     * Insert a chunk of legal rights and move the checkpoint to recordsDone in one transaction
+     */
+    public boolean importRightsChunk(String source, long recordsDone, List<LegalRight> rights) {
+        String query = "INSERT INTO legal_rights (category_id, title, description, details, source) " +
+                      "VALUES (?, ?, ?, ?, ?)";
+        
+        return importChunk(query, source, recordsDone, rights, (pstmt, right) -> {
+            setCategoryId(pstmt, 1, right.getCategoryId());
+            pstmt.setString(2, right.getTitle());
+            pstmt.setString(3, right.getDescription());
+            pstmt.setString(4, right.getDetails());
+            pstmt.setString(5, right.getSource());
+        });
+    }
+    
+    private <T> boolean importChunk(String insert, String source, long recordsDone, List<T> rows,
+                                    RowBinder<T> binder) {
+        String checkpoint = "INSERT INTO import_checkpoints (source, records_done) VALUES (?, ?) " +
+                           "ON DUPLICATE KEY UPDATE records_done = VALUES(records_done)";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(insert);
+             PreparedStatement checkpointStmt = conn.prepareStatement(checkpoint)) {
+            
+            conn.setAutoCommit(false);
+            int batched = 0;
+            for (T row : rows) {
+                binder.bind(pstmt, row);
+                pstmt.addBatch();
+                if (++batched == DatabaseConfig.IMPORT_BATCH_SIZE) {
+                    pstmt.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                pstmt.executeBatch();
+            }
+            
+            checkpointStmt.setString(1, source);
+            checkpointStmt.setLong(2, recordsDone);
+            checkpointStmt.executeUpdate();
+            conn.commit();
+            return true;
+            
+        } catch (SQLException e) {
+            // Uncommitted rows are rolled back when the connection returns to the pool
+            logger.error("Error importing chunk of {} rows from {}", rows.size(), source, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Category 0 means none, stored as NULL so the foreign key accepts it
+     */
+    private static void setCategoryId(PreparedStatement pstmt, int index, int categoryId) throws SQLException {
+        if (categoryId > 0) {
+            pstmt.setInt(index, categoryId);
+        } else {
+            pstmt.setNull(index, Types.INTEGER);
+        }
+    }
+    
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement pstmt, T row) throws SQLException;
+    }
+}
@@ -1,5 +1,6 @@
 package com.pocketlawyer.dao;
 
+import com.pocketlawyer.config.DatabaseConfig;
 import com.pocketlawyer.database.DatabaseManager;
 import com.pocketlawyer.model.LegalCategory;
 import org.slf4j.Logger;
@@ -7,7 +8,9 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Data Access Object for Legal Category operations
@@ -15,6 +18,10 @@ import java.util.List;
 public class CategoryDAO {
     
     private static final Logger logger = LoggerFactory.getLogger(CategoryDAO.class);
+    // Shared by every instance, as categories change far less often than they are read
+    private static final ReadThroughCache cache = new ReadThroughCache("legal_categories",
+        DatabaseConfig.CACHE_MAX_ENTRIES, DatabaseConfig.CACHE_PROBE_SECONDS,
+        ReadThroughCache.updatedAtProbe("legal_categories"));
     private final DatabaseManager dbManager;
     
     public CategoryDAO() {
@@ -22,9 +29,38 @@ public class CategoryDAO {
     }
     
     /**
-     * Get all categories
+     * Get all categories, from the cache while legal_categories is unchanged
+     * The list is shared with other callers and cannot be modified.
      */
     public List<LegalCategory> getAllCategories() {
+        try {
+            return cache.get("all", this::loadAllCategories);
+        } catch (SQLException e) {
+            logger.error("Error retrieving categories", e);
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Get category by ID, from the cache while legal_categories is unchanged
+     */
+    public LegalCategory getCategoryById(int categoryId) {
+        try {
+            return cache.get("id:" + categoryId, () -> loadCategoryById(categoryId));
+        } catch (SQLException e) {
+            logger.error("Error retrieving category by ID", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Get hit ratio and load time statistics of the categories cache
+     */
+    public ReadThroughCacheStats getCacheStats() {
+        return cache.getStats();
+    }
+    
+    private List<LegalCategory> loadAllCategories() throws SQLException {
         List<LegalCategory> categories = new ArrayList<>();
         String query = "SELECT * FROM legal_categories ORDER BY category_name";
         
@@ -36,35 +72,36 @@ public class CategoryDAO {
                 categories.add(mapResultSetToCategory(rs));
             }
             logger.info("Retrieved {} categories", categories.size());
-            
-        } catch (SQLException e) {
-            logger.error("Error retrieving categories", e);
         }
         
-        return categories;
+        return Collections.unmodifiableList(categories);
     }
     
-    /**
-     * Get category by ID
-     */
-    public LegalCategory getCategoryById(int categoryId) {
+    private LegalCategory loadCategoryById(int categoryId) throws SQLException {
         String query = "SELECT * FROM legal_categories WHERE category_id = ?";
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setInt(1, categoryId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToCategory(rs);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapResultSetToCategory(rs) : null;
             }
-            
-        } catch (SQLException e) {
-            logger.error("Error retrieving category by ID", e);
         }
-        
-        return null;
+    }
+    
+    /**
+     * Get all categories on the DAO executor
+     */
+    public CompletableFuture<List<LegalCategory>> getAllCategoriesAsync() {
+        return DaoExecutor.submit(() -> getAllCategories());
+    }
+    
+    /**
+     * Get category by ID on the DAO executor
+     */
+    public CompletableFuture<LegalCategory> getCategoryByIdAsync(int categoryId) {
+        return DaoExecutor.submit(() -> getCategoryById(categoryId));
     }
     
     /**
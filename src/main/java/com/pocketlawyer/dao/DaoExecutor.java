@@ -0,0 +1,94 @@
+package com.pocketlawyer.dao;
+
+import com.pocketlawyer.config.DatabaseConfig;
+import com.pocketlawyer.database.QueryScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs DAO calls asynchronously on a dedicated executor
+ * Calls run on virtual threads where the runtime has them, otherwise on up to
+ * MAX_CONNECTIONS daemon threads; either way the connection pool bounds how
+ * many queries run at once. A call that does not finish within its timeout
+ * completes with a TimeoutException. When the returned future is cancelled,
+ * times out, or is completed exceptionally in any other way, for example by
+ * orTimeout with a shorter timeout, the statements the call is running are
+ * cancelled through its QueryScope. Futures derived from it with thenApply
+ * and the like do not pass cancellation back to it.
+ */
+public final class DaoExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DaoExecutor.class);
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private DaoExecutor() {
+    }
+
+    /**
+     * Run a DAO call with the default timeout of DatabaseConfig.QUERY_TIMEOUT_SECONDS
+     */
+    public static <T> CompletableFuture<T> submit(Supplier<T> call) {
+        return submit(call, TimeUnit.SECONDS.toMillis(DatabaseConfig.QUERY_TIMEOUT_SECONDS));
+    }
+
+    public static <T> CompletableFuture<T> submit(Supplier<T> call, long timeoutMillis) {
+        QueryScope scope = new QueryScope(timeoutMillis);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                scope.cancel();
+            }
+        });
+        future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            EXECUTOR.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                scope.enter();
+                try {
+                    future.complete(call.get());
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    scope.exit();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Java 21+; looked up reflectively as the code targets Java 11
+            ExecutorService executor = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.info("Running asynchronous database calls on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                DatabaseConfig.MAX_CONNECTIONS, DatabaseConfig.MAX_CONNECTIONS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "dao-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.pocketlawyer.dao;
 
+import com.pocketlawyer.config.DatabaseConfig;
 import com.pocketlawyer.database.DatabaseManager;
 import com.pocketlawyer.model.DocumentTemplate;
 import org.slf4j.Logger;
@@ -8,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Data Access Object for Document Template operations
@@ -15,6 +17,13 @@ import java.util.List;
 public class DocumentTemplateDAO {
     
     private static final Logger logger = LoggerFactory.getLogger(DocumentTemplateDAO.class);
+    // Shared by every instance; a document generation looks its template up each time
+    private static final ReadThroughCache cache = new ReadThroughCache("document_templates",
+        DatabaseConfig.CACHE_MAX_ENTRIES, DatabaseConfig.CACHE_PROBE_SECONDS,
+        ReadThroughCache.updatedAtProbe("document_templates"));
+    // Every column but the LONGTEXT content, which is fetched for the selected template with getTemplateContent
+    private static final String SUMMARY_COLUMNS =
+        "template_id, template_name, template_type, fields_json, created_at, updated_at";
     private final DatabaseManager dbManager;
     
     public DocumentTemplateDAO() {
@@ -22,18 +31,18 @@ public class DocumentTemplateDAO {
     }
     
     /**
-     * Get all document templates
+     * Get all document templates, without their content
      */
     public List<DocumentTemplate> getAllTemplates() {
         List<DocumentTemplate> templates = new ArrayList<>();
-        String query = "SELECT * FROM document_templates ORDER BY template_name";
+        String query = "SELECT " + SUMMARY_COLUMNS + " FROM document_templates ORDER BY template_name";
         
         try (Connection conn = dbManager.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                templates.add(mapResultSetToTemplate(rs));
+                templates.add(mapResultSetToTemplateSummary(rs));
             }
             logger.info("Retrieved {} document templates", templates.size());
             
@@ -45,46 +54,71 @@ public class DocumentTemplateDAO {
     }
     
     /**
-     * Get template by ID
+     * Get template by ID, from the cache while document_templates is unchanged
+     * The template is shared with other callers and must not be modified.
      */
     public DocumentTemplate getTemplateById(int templateId) {
-        String query = "SELECT * FROM document_templates WHERE template_id = ?";
+        try {
+            return cache.get("id:" + templateId, () -> loadTemplate("template_id", templateId));
+        } catch (SQLException e) {
+            logger.error("Error retrieving template by ID", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Get template by name, from the cache while document_templates is unchanged
+     * The template is shared with other callers and must not be modified.
+     */
+    public DocumentTemplate getTemplateByName(String templateName) {
+        try {
+            return cache.get("name:" + templateName, () -> loadTemplate("template_name", templateName));
+        } catch (SQLException e) {
+            logger.error("Error retrieving template by name", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Get hit ratio and load time statistics of the templates cache
+     */
+    public ReadThroughCacheStats getCacheStats() {
+        return cache.getStats();
+    }
+    
+    private DocumentTemplate loadTemplate(String column, Object value) throws SQLException {
+        String query = "SELECT * FROM document_templates WHERE " + column + " = ?";
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
-            pstmt.setInt(1, templateId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToTemplate(rs);
+            pstmt.setObject(1, value);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapResultSetToTemplate(rs) : null;
             }
-            
-        } catch (SQLException e) {
-            logger.error("Error retrieving template by ID", e);
         }
-        
-        return null;
     }
     
     /**
-     * Get template by name
+     * Get the content of a template, for a template loaded without it
+     *
+     * @return the content, or null if the template does not exist
      */
-    public DocumentTemplate getTemplateByName(String templateName) {
-        String query = "SELECT * FROM document_templates WHERE template_name = ?";
+    public String getTemplateContent(int templateId) {
+        String query = "SELECT template_content FROM document_templates WHERE template_id = ?";
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
-            pstmt.setString(1, templateName);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToTemplate(rs);
+            pstmt.setInt(1, templateId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getString("template_content");
+                }
             }
             
         } catch (SQLException e) {
-            logger.error("Error retrieving template by name", e);
+            logger.error("Error retrieving template content", e);
         }
         
         return null;
@@ -115,15 +149,51 @@ public class DocumentTemplateDAO {
         }
     }
     
+    /**
+     * Get all document templates, without their content, on the DAO executor
+     */
+    public CompletableFuture<List<DocumentTemplate>> getAllTemplatesAsync() {
+        return DaoExecutor.submit(() -> getAllTemplates());
+    }
+    
+    /**
+     * Get template by ID on the DAO executor
+     */
+    public CompletableFuture<DocumentTemplate> getTemplateByIdAsync(int templateId) {
+        return DaoExecutor.submit(() -> getTemplateById(templateId));
+    }
+    
+    /**
+     * Get template by name on the DAO executor
+     */
+    public CompletableFuture<DocumentTemplate> getTemplateByNameAsync(String templateName) {
+        return DaoExecutor.submit(() -> getTemplateByName(templateName));
+    }
+    
+    /**
+     * Get the content of a template on the DAO executor
+     */
+    public CompletableFuture<String> getTemplateContentAsync(int templateId) {
+        return DaoExecutor.submit(() -> getTemplateContent(templateId));
+    }
+    
     /**
      * Map ResultSet to DocumentTemplate object
      */
     private DocumentTemplate mapResultSetToTemplate(ResultSet rs) throws SQLException {
+        DocumentTemplate template = mapResultSetToTemplateSummary(rs);
+        template.setTemplateContent(rs.getString("template_content"));
+        return template;
+    }
+    
+    /**
+     * Map ResultSet of the summary columns to DocumentTemplate object, leaving the content null
+     */
+    private DocumentTemplate mapResultSetToTemplateSummary(ResultSet rs) throws SQLException {
         DocumentTemplate template = new DocumentTemplate();
         template.setTemplateId(rs.getInt("template_id"));
         template.setTemplateName(rs.getString("template_name"));
         template.setTemplateType(rs.getString("template_type"));
-        template.setTemplateContent(rs.getString("template_content"));
         template.setFieldsJson(rs.getString("fields_json"));
         template.setCreatedAt(rs.getTimestamp("created_at"));
         template.setUpdatedAt(rs.getTimestamp("updated_at"));
@@ -0,0 +1,192 @@
+package com.pocketlawyer.dao;
+
+import com.pocketlawyer.config.DatabaseConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Keyword search over the columns of a table's FULLTEXT index
+ * On MySQL, searches use MATCH ... AGAINST in boolean mode over a FULLTEXT
+ * index, every term required and matched as a prefix, ordered by relevance.
+ * Other databases, such as embedded test databases, and tables created before
+ * the FULLTEXT index existed fall back to one LIKE condition per term. Either
+ * way a multi-term query matches rows containing all of its terms.
+ */
+final class FullTextSearch {
+
+    private static final Logger logger = LoggerFactory.getLogger(FullTextSearch.class);
+
+    // MySQL error for MATCH on columns without a FULLTEXT index
+    private static final int ER_FT_MATCHING_KEY_NOT_FOUND = 1191;
+    // Default innodb_ft_min_token_size; shorter terms are not in the FULLTEXT index
+    private static final int MIN_INDEXED_LENGTH = 3;
+    // Default InnoDB stopwords, which are not in the FULLTEXT index either; left out of the query
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+        "a", "about", "an", "are", "as", "at", "be", "by", "com", "de", "en", "for", "from", "how", "i", "in",
+        "is", "it", "la", "of", "on", "or", "that", "the", "this", "to", "was", "what", "when", "where", "who",
+        "will", "with", "und", "www"));
+
+    private final String columns;
+    private final String[] lowerColumns;
+    private volatile boolean fullTextAvailable = DatabaseConfig.FULLTEXT_SEARCH;
+
+    /**
+     * @param columns the columns of one FULLTEXT index, in its order
+     */
+    FullTextSearch(String... columns) {
+        this.columns = String.join(", ", columns);
+        this.lowerColumns = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            lowerColumns[i] = "LOWER(" + columns[i] + ")";
+        }
+    }
+
+    /**
+     * Terms of a search string: runs of letters and digits, lower case
+     */
+    private static List<String> terms(String searchTerm) {
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder();
+        String text = searchTerm.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Rows of a table containing every term of a search string
+     * Full-text results come most relevant first, then in the given order;
+     * LIKE results come in the given order.
+     *
+     * @param orderBy ORDER BY list of the table's natural order
+     */
+    <T> List<T> search(Connection conn, String table, String orderBy, String searchTerm, RowMapper<T> mapper)
+            throws SQLException {
+        return search(conn, table, "*", orderBy, searchTerm, mapper);
+    }
+
+    /**
+     * Rows of a table containing every term of a search string, selecting only some columns
+     *
+     * @param select SELECT list of the columns the mapper reads
+     */
+    <T> List<T> search(Connection conn, String table, String select, String orderBy, String searchTerm,
+                       RowMapper<T> mapper) throws SQLException {
+        List<String> terms = terms(searchTerm);
+        if (useFullText(conn, terms)) {
+            String match = "MATCH(" + columns + ") AGAINST (? IN BOOLEAN MODE)";
+            String query = "SELECT " + select + ", " + match + " AS relevance FROM " + table + " WHERE " + match +
+                          " ORDER BY relevance DESC, " + orderBy;
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                String against = againstQuery(terms);
+                pstmt.setString(1, against);
+                pstmt.setString(2, against);
+                return readAll(pstmt, mapper);
+            } catch (SQLException e) {
+                if (e.getErrorCode() != ER_FT_MATCHING_KEY_NOT_FOUND) {
+                    throw e;
+                }
+                logger.warn("No FULLTEXT index on {} ({}), using LIKE; add it as in database/schema.sql",
+                            table, columns);
+                fullTextAvailable = false;
+            }
+        }
+
+        String query = "SELECT " + select + " FROM " + table + " WHERE " + likeCondition(terms) +
+                      " ORDER BY " + orderBy;
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            bindLike(pstmt, terms);
+            return readAll(pstmt, mapper);
+        }
+    }
+
+    private static <T> List<T> readAll(PreparedStatement pstmt, RowMapper<T> mapper) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(mapper.map(rs));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Whether a search for these terms can use MATCH ... AGAINST on this connection
+     * Not if a term is too short to be indexed, or the database is not MySQL.
+     */
+    private boolean useFullText(Connection conn, List<String> terms) throws SQLException {
+        if (!fullTextAvailable || againstQuery(terms).isEmpty()) {
+            return false;
+        }
+        for (String term : terms) {
+            if (term.length() < MIN_INDEXED_LENGTH && !STOPWORDS.contains(term)) {
+                return false;
+            }
+        }
+        String product = conn.getMetaData().getDatabaseProductName();
+        if (!"MySQL".equalsIgnoreCase(product) && !"MariaDB".equalsIgnoreCase(product)) {
+            logger.info("Full-text search is not available on {}, using LIKE", product);
+            fullTextAvailable = false;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Boolean mode query requiring every term other than stopwords as a word prefix
+     */
+    private static String againstQuery(List<String> terms) {
+        StringBuilder query = new StringBuilder();
+        for (String term : terms) {
+            if (STOPWORDS.contains(term)) {
+                continue;
+            }
+            query.append(query.length() > 0 ? " +" : "+").append(term).append('*');
+        }
+        return query.toString();
+    }
+
+    /**
+     * Condition requiring every term in at least one column; a search without terms matches everything
+     */
+    private String likeCondition(List<String> terms) {
+        List<String> perTerm = new ArrayList<>();
+        for (int t = 0; t < Math.max(terms.size(), 1); t++) {
+            perTerm.add("(" + String.join(" LIKE ? OR ", lowerColumns) + " LIKE ?)");
+        }
+        return String.join(" AND ", perTerm);
+    }
+
+    private void bindLike(PreparedStatement pstmt, List<String> terms) throws SQLException {
+        int index = 1;
+        for (String term : terms.isEmpty() ? Collections.singletonList("") : terms) {
+            for (int c = 0; c < lowerColumns.length; c++) {
+                pstmt.setString(index++, "%" + term + "%");
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+}
@@ -1,5 +1,6 @@
 package com.pocketlawyer.dao;
 
+import com.pocketlawyer.config.DatabaseConfig;
 import com.pocketlawyer.database.DatabaseManager;
 import com.pocketlawyer.model.LegalQA;
 import org.slf4j.Logger;
@@ -7,7 +8,13 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Legal Q&A operations
@@ -16,6 +23,7 @@ public class LegalQADAO {
     
     private static final Logger logger = LoggerFactory.getLogger(LegalQADAO.class);
     private final DatabaseManager dbManager;
+    private final FullTextSearch fullTextSearch = new FullTextSearch("question", "answer", "keywords");
     
     public LegalQADAO() {
         this.dbManager = DatabaseManager.getInstance();
@@ -45,35 +53,255 @@ public class LegalQADAO {
     }
     
     /**
-     * Search Q&A by keywords
+     * Get the Q&A pairs following a qa_id, a page at a time
+     * Keyset pagination: pass 0 for the first page, then the qa_id of the last
+     * pair of the previous page. Each page is an index range scan of the
+     * primary key, however deep into the table it is.
      */
-    public List<LegalQA> searchByKeywords(String searchTerm) {
+    public List<LegalQA> getQAPage(int afterQaId, int limit) {
         List<LegalQA> qaList = new ArrayList<>();
-        String query = "SELECT * FROM legal_qa WHERE " +
-                      "LOWER(question) LIKE ? OR " +
-                      "LOWER(answer) LIKE ? OR " +
-                      "LOWER(keywords) LIKE ? " +
-                      "ORDER BY priority DESC";
+        String query = "SELECT * FROM legal_qa WHERE qa_id > ? ORDER BY qa_id LIMIT ?";
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
-            String searchPattern = "%" + searchTerm.toLowerCase() + "%";
-            pstmt.setString(1, searchPattern);
-            pstmt.setString(2, searchPattern);
-            pstmt.setString(3, searchPattern);
+            pstmt.setInt(1, afterQaId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    qaList.add(mapResultSetToQA(rs));
+                }
+            }
             
-            ResultSet rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            logger.error("Error retrieving Q&A page after {}", afterQaId, e);
+        }
+        
+        return qaList;
+    }
+    
+    /**
+     * Stream all Q&A pairs to a consumer as the rows arrive, without holding them
+     * Pairs come by category_id, then by priority descending and qa_id. The
+     * consumer runs while the connection is streaming; it must not query the
+     * database itself.
+     *
+     * @return false if reading failed, possibly after some pairs were passed on
+     */
+    public boolean forEachQA(Consumer<LegalQA> consumer) {
+        String query = "SELECT * FROM legal_qa ORDER BY category_id, priority DESC, qa_id";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = ResultStreaming.prepare(conn, query);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            int count = 0;
             while (rs.next()) {
-                qaList.add(mapResultSetToQA(rs));
+                consumer.accept(mapResultSetToQA(rs));
+                count++;
+            }
+            logger.info("Streamed {} Q&A pairs from database", count);
+            return true;
+            
+        } catch (SQLException e) {
+            logger.error("Error streaming Q&A pairs", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Get all Q&A pairs without their answers, for comparing questions and keywords
+     */
+    public List<LegalQA> getAllQAWithoutAnswers() {
+        List<LegalQA> qaList = new ArrayList<>();
+        String query = "SELECT qa_id, category_id, question, keywords, priority FROM legal_qa ORDER BY qa_id";
+        
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            while (rs.next()) {
+                LegalQA qa = new LegalQA(rs.getString("question"), null, rs.getString("keywords"));
+                qa.setQaId(rs.getInt("qa_id"));
+                qa.setCategoryId(rs.getInt("category_id"));
+                qa.setPriority(rs.getInt("priority"));
+                qaList.add(qa);
+            }
+            logger.info("Retrieved {} Q&A questions from database", qaList.size());
+            
+        } catch (SQLException e) {
+            logger.error("Error retrieving Q&A questions", e);
+        }
+        
+        return qaList;
+    }
+    
+    /**
+     * Get a fingerprint of the table contents: row count, highest qa_id and latest update
+     * Any insert, update or delete changes it, so it tells whether a prebuilt
+     * index is still current. Returns null if the database cannot be queried.
+     */
+    public String getContentFingerprint() {
+        String query = "SELECT COUNT(*), MAX(qa_id), MAX(updated_at) FROM legal_qa";
+        
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            if (rs.next()) {
+                Timestamp lastUpdate = rs.getTimestamp(3);
+                return rs.getLong(1) + ":" + rs.getLong(2) + ":" + (lastUpdate == null ? 0 : lastUpdate.getTime());
+            }
+            
+        } catch (SQLException e) {
+            logger.error("Error reading Q&A table fingerprint", e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get Q&A pairs inserted or updated at or after a point in time
+     * Returns null if the database cannot be queried, so callers can tell a
+     * failure apart from an unchanged table.
+     */
+    public List<LegalQA> getQAUpdatedSince(Timestamp since) {
+        List<LegalQA> qaList = new ArrayList<>();
+        String query = "SELECT * FROM legal_qa WHERE updated_at >= ? ORDER BY priority DESC, qa_id ASC";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setTimestamp(1, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    qaList.add(mapResultSetToQA(rs));
+                }
+            }
+            logger.debug("Retrieved {} Q&A pairs updated since {}", qaList.size(), since);
+            return qaList;
+            
+        } catch (SQLException e) {
+            logger.error("Error retrieving updated Q&A pairs", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Count Q&A pairs, or return -1 if the database cannot be queried
+     */
+    public int getQACount() {
+        String query = "SELECT COUNT(*) FROM legal_qa";
+        
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            return rs.next() ? rs.getInt(1) : 0;
+            
+        } catch (SQLException e) {
+            logger.error("Error counting Q&A pairs", e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Count Q&A pairs and sum their IDs in one read, used to check an index against the table
+     * Returns {count, sum of qa_id}, or null if the database cannot be queried.
+     */
+    public long[] getQAIdTotals() {
+        String query = "SELECT COUNT(*), COALESCE(SUM(qa_id), 0) FROM legal_qa";
+        
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            return rs.next() ? new long[] {rs.getLong(1), rs.getLong(2)} : new long[2];
+            
+        } catch (SQLException e) {
+            logger.error("Error summing Q&A ids", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Get the Q&A pairs with the given IDs that still exist
+     * Returns null if the database cannot be queried.
+     */
+    public List<LegalQA> getQAByIds(int[] qaIds) {
+        List<LegalQA> qaList = new ArrayList<>();
+        
+        try (Connection conn = dbManager.getConnection()) {
+            for (int from = 0; from < qaIds.length; from += DatabaseConfig.IMPORT_BATCH_SIZE) {
+                int to = Math.min(qaIds.length, from + DatabaseConfig.IMPORT_BATCH_SIZE);
+                String query = "SELECT * FROM legal_qa WHERE qa_id IN ("
+                    + String.join(",", Collections.nCopies(to - from, "?"))
+                    + ") ORDER BY qa_id";
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    for (int i = from; i < to; i++) {
+                        pstmt.setInt(i - from + 1, qaIds[i]);
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            qaList.add(mapResultSetToQA(rs));
+                        }
+                    }
+                }
+            }
+            logger.debug("Retrieved {} of {} Q&A pairs by id", qaList.size(), qaIds.length);
+            return qaList;
+            
+        } catch (SQLException e) {
+            logger.error("Error retrieving Q&A pairs by id", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Get the IDs of all Q&A pairs in ascending order, used to detect deletions
+     * Returns null if the database cannot be queried.
+     */
+    public int[] getAllQAIds() {
+        String query = "SELECT qa_id FROM legal_qa ORDER BY qa_id";
+        
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            int[] ids = new int[256];
+            int count = 0;
+            while (rs.next()) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = rs.getInt(1);
             }
+            return Arrays.copyOf(ids, count);
+            
+        } catch (SQLException e) {
+            logger.error("Error retrieving Q&A ids", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Search Q&A by keywords
+     * Matches pairs containing every term of the search in their question,
+     * answer or keywords, most relevant first when the FULLTEXT index is used.
+     */
+    public List<LegalQA> searchByKeywords(String searchTerm) {
+        try (Connection conn = dbManager.getConnection()) {
+            
+            List<LegalQA> qaList = fullTextSearch.search(conn, "legal_qa", "priority DESC, qa_id",
+                searchTerm, this::mapResultSetToQA);
             logger.info("Found {} Q&A pairs matching '{}'", qaList.size(), searchTerm);
+            return qaList;
             
         } catch (SQLException e) {
             logger.error("Error searching Q&A pairs", e);
         }
         
-        return qaList;
+        return new ArrayList<>();
     }
     
     /**
@@ -103,28 +331,123 @@ public class LegalQADAO {
     
     /**
      * Add new Q&A pair
+     * The generated qa_id is set on the pair and returned, or -1 if the insert failed.
+     */
+    public int addQA(LegalQA qa) {
+        int[] ids = addQAs(Collections.singletonList(qa));
+        return ids == null ? -1 : ids[0];
+    }
+    
+    /**
+     * Add several Q&A pairs in one batch and transaction
+     * Each pair gets its generated qa_id and the created_at and updated_at the
+     * database set, as a later read would return them. Returns the IDs in list
+     * order, or null if the batch failed, in which case nothing was inserted.
      */
-    public boolean addQA(LegalQA qa) {
+    public int[] addQAs(List<LegalQA> qaList) {
         String query = "INSERT INTO legal_qa (category_id, question, answer, keywords, priority) " +
                       "VALUES (?, ?, ?, ?, ?)";
         
         try (Connection conn = dbManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
-            pstmt.setInt(1, qa.getCategoryId());
-            pstmt.setString(2, qa.getQuestion());
-            pstmt.setString(3, qa.getAnswer());
-            pstmt.setString(4, qa.getKeywords());
-            pstmt.setInt(5, qa.getPriority());
+            conn.setAutoCommit(false);
+            for (LegalQA qa : qaList) {
+                pstmt.setInt(1, qa.getCategoryId());
+                pstmt.setString(2, qa.getQuestion());
+                pstmt.setString(3, qa.getAnswer());
+                pstmt.setString(4, qa.getKeywords());
+                pstmt.setInt(5, qa.getPriority());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
             
-            int rowsAffected = pstmt.executeUpdate();
-            logger.info("Added new Q&A pair: {}", qa.getQuestion());
-            return rowsAffected > 0;
+            int[] ids = new int[qaList.size()];
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length; i++) {
+                    if (!keys.next()) {
+                        throw new SQLException("Missing generated key for Q&A pair " + i);
+                    }
+                    ids[i] = keys.getInt(1);
+                }
+            }
+            Map<Integer, Timestamp[]> timestamps = readTimestamps(conn, ids);
+            conn.commit();
+            
+            for (int i = 0; i < ids.length; i++) {
+                LegalQA qa = qaList.get(i);
+                qa.setQaId(ids[i]);
+                Timestamp[] rowTimestamps = timestamps.get(ids[i]);
+                if (rowTimestamps != null) {
+                    qa.setCreatedAt(rowTimestamps[0]);
+                    qa.setUpdatedAt(rowTimestamps[1]);
+                }
+            }
+            logger.info("Added {} new Q&A pairs", ids.length);
+            return ids;
             
         } catch (SQLException e) {
-            logger.error("Error adding Q&A pair", e);
-            return false;
+            // Uncommitted rows are rolled back when the connection returns to the pool
+            logger.error("Error adding Q&A pairs", e);
+            return null;
+        }
+    }
+    
+    /**
+     * created_at and updated_at of rows by qa_id, read in one query over the range of the IDs
+     */
+    private Map<Integer, Timestamp[]> readTimestamps(Connection conn, int[] ids) throws SQLException {
+        Map<Integer, Timestamp[]> timestamps = new HashMap<>();
+        if (ids.length == 0) {
+            return timestamps;
         }
+        String query = "SELECT qa_id, created_at, updated_at FROM legal_qa WHERE qa_id BETWEEN ? AND ?";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, Arrays.stream(ids).min().getAsInt());
+            pstmt.setInt(2, Arrays.stream(ids).max().getAsInt());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    timestamps.put(rs.getInt(1), new Timestamp[] {rs.getTimestamp(2), rs.getTimestamp(3)});
+                }
+            }
+        }
+        return timestamps;
+    }
+    
+    /**
+     * Get all Q&A pairs on the DAO executor
+     */
+    public CompletableFuture<List<LegalQA>> getAllQAAsync() {
+        return DaoExecutor.submit(() -> getAllQA());
+    }
+    
+    /**
+     * Get a page of Q&A pairs following a qa_id on the DAO executor
+     */
+    public CompletableFuture<List<LegalQA>> getQAPageAsync(int afterQaId, int limit) {
+        return DaoExecutor.submit(() -> getQAPage(afterQaId, limit));
+    }
+    
+    /**
+     * Get the number of Q&A pairs on the DAO executor
+     */
+    public CompletableFuture<Integer> getQACountAsync() {
+        return DaoExecutor.submit(() -> getQACount());
+    }
+    
+    /**
+     * Search Q&A by keywords on the DAO executor
+     */
+    public CompletableFuture<List<LegalQA>> searchByKeywordsAsync(String searchTerm) {
+        return DaoExecutor.submit(() -> searchByKeywords(searchTerm));
+    }
+    
+    /**
+     * Get Q&A by category on the DAO executor
+     */
+    public CompletableFuture<List<LegalQA>> getQAByCategoryAsync(int categoryId) {
+        return DaoExecutor.submit(() -> getQAByCategory(categoryId));
     }
     
     /**
@@ -1,6 +1,7 @@
 package com.pocketlawyer.dao;
 
 import com.pocketlawyer.database.DatabaseManager;
+import com.pocketlawyer.database.QueryScope;
 import com.pocketlawyer.model.LegalRight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,6 +9,8 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Legal Rights operations
@@ -15,25 +18,29 @@ import java.util.List;
 public class LegalRightsDAO {
     
     private static final Logger logger = LoggerFactory.getLogger(LegalRightsDAO.class);
+    // Every column but the LONGTEXT details, which list views fetch per right with getRightDetails
+    private static final String SUMMARY_COLUMNS =
+        "right_id, category_id, title, description, source, created_at, updated_at";
     private final DatabaseManager dbManager;
+    private final FullTextSearch fullTextSearch = new FullTextSearch("title", "description", "details");
     
     public LegalRightsDAO() {
         this.dbManager = DatabaseManager.getInstance();
     }
     
     /**
-     * Get all legal rights
+     * Get all legal rights, without their details
      */
     public List<LegalRight> getAllRights() {
         List<LegalRight> rightsList = new ArrayList<>();
-        String query = "SELECT * FROM legal_rights ORDER BY category_id, right_id";
+        String query = "SELECT " + SUMMARY_COLUMNS + " FROM legal_rights ORDER BY category_id, right_id";
         
         try (Connection conn = dbManager.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
-                rightsList.add(mapResultSetToRight(rs));
+                rightsList.add(mapResultSetToRightSummary(rs));
             }
             logger.info("Retrieved {} legal rights from database", rightsList.size());
             
@@ -45,11 +52,68 @@ public class LegalRightsDAO {
     }
     
     /**
-     * Get rights by category
+     * Get the rights following a right_id, a page at a time, without their details
+     * Keyset pagination: pass 0 for the first page, then the right_id of the
+     * last right of the previous page.
+     */
+    public List<LegalRight> getRightsPage(int afterRightId, int limit) {
+        List<LegalRight> rightsList = new ArrayList<>();
+        String query = "SELECT " + SUMMARY_COLUMNS + " FROM legal_rights WHERE right_id > ? " +
+                      "ORDER BY right_id LIMIT ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setInt(1, afterRightId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rightsList.add(mapResultSetToRightSummary(rs));
+                }
+            }
+            
+        } catch (SQLException e) {
+            logger.error("Error retrieving rights page after {}", afterRightId, e);
+        }
+        
+        return rightsList;
+    }
+    
+    /**
+     * Stream all legal rights, without their details, to a consumer as the rows arrive
+     * Rights come in the order of getAllRights. The consumer runs while the
+     * connection is streaming; it must not query the database itself. Run on
+     * the DAO executor, no more rights are passed on once the call is cancelled.
+     *
+     * @return false if reading failed or was cancelled, possibly after some rights were passed on
+     */
+    public boolean forEachRight(Consumer<LegalRight> consumer) {
+        String query = "SELECT " + SUMMARY_COLUMNS + " FROM legal_rights ORDER BY category_id, right_id";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = ResultStreaming.prepare(conn, query);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                if (QueryScope.isCurrentCancelled()) {
+                    return false;
+                }
+                consumer.accept(mapResultSetToRightSummary(rs));
+            }
+            return true;
+            
+        } catch (SQLException e) {
+            logger.error("Error streaming legal rights", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Get rights by category, without their details
      */
     public List<LegalRight> getRightsByCategory(int categoryId) {
         List<LegalRight> rightsList = new ArrayList<>();
-        String query = "SELECT * FROM legal_rights WHERE category_id = ? ORDER BY right_id";
+        String query = "SELECT " + SUMMARY_COLUMNS + " FROM legal_rights WHERE category_id = ? ORDER BY right_id";
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
@@ -58,7 +122,7 @@ public class LegalRightsDAO {
             ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
-                rightsList.add(mapResultSetToRight(rs));
+                rightsList.add(mapResultSetToRightSummary(rs));
             }
             logger.info("Retrieved {} rights for category {}", rightsList.size(), categoryId);
             
@@ -71,33 +135,23 @@ public class LegalRightsDAO {
     
     /**
      * Search rights by keyword
+     * Matches rights containing every term of the search in their title,
+     * description or details, most relevant first when the FULLTEXT index is used.
+     * The rights are returned without their details.
      */
     public List<LegalRight> searchRights(String searchTerm) {
-        List<LegalRight> rightsList = new ArrayList<>();
-        String query = "SELECT * FROM legal_rights WHERE " +
-                      "LOWER(title) LIKE ? OR " +
-                      "LOWER(description) LIKE ? OR " +
-                      "LOWER(details) LIKE ?";
-        
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (Connection conn = dbManager.getConnection()) {
             
-            String searchPattern = "%" + searchTerm.toLowerCase() + "%";
-            pstmt.setString(1, searchPattern);
-            pstmt.setString(2, searchPattern);
-            pstmt.setString(3, searchPattern);
-            
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                rightsList.add(mapResultSetToRight(rs));
-            }
+            List<LegalRight> rightsList = fullTextSearch.search(conn, "legal_rights", SUMMARY_COLUMNS,
+                "category_id, right_id", searchTerm, this::mapResultSetToRightSummary);
             logger.info("Found {} rights matching '{}'", rightsList.size(), searchTerm);
+            return rightsList;
             
         } catch (SQLException e) {
             logger.error("Error searching legal rights", e);
         }
         
-        return rightsList;
+        return new ArrayList<>();
     }
     
     /**
@@ -123,16 +177,101 @@ public class LegalRightsDAO {
         return null;
     }
     
+    /**
+     * Get the details of a right, for a right loaded without them
+     *
+     * @return the details, or null if the right has none or does not exist
+     */
+    public String getRightDetails(int rightId) {
+        String query = "SELECT details FROM legal_rights WHERE right_id = ?";
+        
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            
+            pstmt.setInt(1, rightId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getString("details");
+                }
+            }
+            
+        } catch (SQLException e) {
+            logger.error("Error retrieving right details", e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get all legal rights, without their details, on the DAO executor
+     */
+    public CompletableFuture<List<LegalRight>> getAllRightsAsync() {
+        return DaoExecutor.submit(() -> getAllRights());
+    }
+    
+    /**
+     * Get a page of rights following a right_id on the DAO executor
+     */
+    public CompletableFuture<List<LegalRight>> getRightsPageAsync(int afterRightId, int limit) {
+        return DaoExecutor.submit(() -> getRightsPage(afterRightId, limit));
+    }
+    
+    /**
+     * Stream all legal rights, without their details, to a consumer on the DAO executor
+     * Cancelling the future cancels the query and stops passing on rights.
+     *
+     * @see #forEachRight(Consumer)
+     */
+    public CompletableFuture<Boolean> forEachRightAsync(Consumer<LegalRight> consumer) {
+        return DaoExecutor.submit(() -> forEachRight(consumer));
+    }
+    
+    /**
+     * Get rights by category, without their details, on the DAO executor
+     */
+    public CompletableFuture<List<LegalRight>> getRightsByCategoryAsync(int categoryId) {
+        return DaoExecutor.submit(() -> getRightsByCategory(categoryId));
+    }
+    
+    /**
+     * Search rights by keyword on the DAO executor
+     */
+    public CompletableFuture<List<LegalRight>> searchRightsAsync(String searchTerm) {
+        return DaoExecutor.submit(() -> searchRights(searchTerm));
+    }
+    
+    /**
+     * Get right by ID on the DAO executor
+     */
+    public CompletableFuture<LegalRight> getRightByIdAsync(int rightId) {
+        return DaoExecutor.submit(() -> getRightById(rightId));
+    }
+    
+    /**
+     * Get the details of a right on the DAO executor
+     */
+    public CompletableFuture<String> getRightDetailsAsync(int rightId) {
+        return DaoExecutor.submit(() -> getRightDetails(rightId));
+    }
+    
     /**
      * Map ResultSet to LegalRight object
      */
     private LegalRight mapResultSetToRight(ResultSet rs) throws SQLException {
+        LegalRight right = mapResultSetToRightSummary(rs);
+        right.setDetails(rs.getString("details"));
+        return right;
+    }
+    
+    /**
+     * Map ResultSet of the summary columns to LegalRight object, leaving details null
+     */
+    private LegalRight mapResultSetToRightSummary(ResultSet rs) throws SQLException {
         LegalRight right = new LegalRight();
         right.setRightId(rs.getInt("right_id"));
         right.setCategoryId(rs.getInt("category_id"));
         right.setTitle(rs.getString("title"));
         right.setDescription(rs.getString("description"));
-        right.setDetails(rs.getString("details"));
         right.setSource(rs.getString("source"));
         right.setCreatedAt(rs.getTimestamp("created_at"));
         right.setUpdatedAt(rs.getTimestamp("updated_at"));
@@ -0,0 +1,200 @@
+package com.pocketlawyer.dao;
+
+import com.pocketlawyer.database.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded read-through cache of query results from a table that rarely changes
+ * Results are kept, least recently used first out, until a probe of the
+ * table's version finds it has changed. The probe is a cheap aggregate such as
+ * COUNT(*) and MAX(updated_at), run on a schedule and once before the first
+ * lookup, so a change shows up within one probe interval rather than after a
+ * guessed time to live. A load that overlaps an invalidation is returned but
+ * not kept. Values are shared by all callers and must not be modified.
+ */
+final class ReadThroughCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadThroughCache.class);
+
+    private final String table;
+    private final int maxSize;
+    private final long probeSeconds;
+    private final Probe probe;
+
+    // Most recently used last (guarded by this)
+    private final LinkedHashMap<String, Object> entries;
+    // Incremented by every invalidation (guarded by this)
+    private long generation;
+    private volatile String version;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile boolean probeFailing;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong totalLoadNanos = new AtomicLong();
+
+    /**
+     * @param probeSeconds seconds between probes; 0 turns caching off
+     */
+    ReadThroughCache(String table, int maxSize, long probeSeconds, Probe probe) {
+        this.table = table;
+        this.maxSize = maxSize;
+        this.probeSeconds = probeSeconds;
+        this.probe = probe;
+        this.entries = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                if (size() <= ReadThroughCache.this.maxSize) {
+                    return false;
+                }
+                evictionCount.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Cached value for a key, or the loader's value, kept unless it is null
+     * Nothing is kept when the loader throws, so failures are not cached.
+     */
+    @SuppressWarnings("unchecked")
+    <V> V get(String key, Loader<V> loader) throws SQLException {
+        if (probeSeconds <= 0) {
+            return loader.load();
+        }
+        startProbing();
+
+        long loadGeneration;
+        synchronized (this) {
+            Object value = entries.get(key);
+            if (value != null) {
+                hitCount.incrementAndGet();
+                return (V) value;
+            }
+            loadGeneration = generation;
+        }
+
+        missCount.incrementAndGet();
+        long start = System.nanoTime();
+        V value = loader.load();
+        totalLoadNanos.addAndGet(System.nanoTime() - start);
+        if (value != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    entries.put(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    ReadThroughCacheStats getStats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new ReadThroughCacheStats(table, size, maxSize, hitCount.get(), missCount.get(), evictionCount.get(),
+            invalidationCount.get(), totalLoadNanos.get());
+    }
+
+    private void startProbing() {
+        if (probing.compareAndSet(false, true)) {
+            checkVersion();
+            ProbeScheduler.EXECUTOR.scheduleWithFixedDelay(this::checkVersion, probeSeconds, probeSeconds,
+                TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Probe the table and drop every entry if its version is new or unknown
+     */
+    private void checkVersion() {
+        String probed;
+        try {
+            probed = probe.version();
+            probeFailing = false;
+        } catch (SQLException | RuntimeException e) {
+            // Until a probe succeeds every probe clears the cache; warn once rather than every interval
+            if (!probeFailing) {
+                logger.warn("Error probing {} for changes, clearing its cache after every probe until it succeeds",
+                            table, e);
+            }
+            probeFailing = true;
+            probed = null;
+        }
+        String previous = version;
+        version = probed;
+        if (previous != null && previous.equals(probed)) {
+            return;
+        }
+        synchronized (this) {
+            generation++;
+            if (entries.isEmpty()) {
+                return;
+            }
+            entries.clear();
+        }
+        invalidationCount.incrementAndGet();
+        logger.info("{} changed, cleared its cache: {}", table, getStats());
+    }
+
+    /**
+     * Probe of a table with an updated_at column: its row count and latest update
+     * The version is unknown while the latest update is within a second of
+     * now, as updated_at has whole seconds and a second change in the same
+     * second would not move it.
+     */
+    static Probe updatedAtProbe(String table) {
+        String query = "SELECT COUNT(*), MAX(updated_at), MAX(updated_at) >= NOW() - INTERVAL 1 SECOND FROM " + table;
+        return () -> {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(query)) {
+                rs.next();
+                return rs.getBoolean(3) ? null : rs.getLong(1) + "/" + rs.getTimestamp(2);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    /**
+     * Current version of the table
+     * Returns null while the version cannot be trusted, such as within the
+     * resolution of updated_at of the latest change, so the next probe
+     * invalidates again.
+     */
+    @FunctionalInterface
+    interface Probe {
+        String version() throws SQLException;
+    }
+
+    /**
+     * Daemon thread shared by the probes of all caches, started with the first cache used
+     */
+    private static final class ProbeScheduler {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "dao-cache-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
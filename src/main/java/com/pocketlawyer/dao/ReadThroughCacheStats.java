@@ -0,0 +1,82 @@
+package com.pocketlawyer.dao;
+
+/**
+ * Point-in-time snapshot of a DAO read-through cache
+ */
+public class ReadThroughCacheStats {
+    private final String table;
+    private final int size;
+    private final int maxSize;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long invalidationCount;
+    private final long totalLoadNanos;
+
+    public ReadThroughCacheStats(String table, int size, int maxSize, long hitCount, long missCount,
+                                 long evictionCount, long invalidationCount, long totalLoadNanos) {
+        this.table = table;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.invalidationCount = invalidationCount;
+        this.totalLoadNanos = totalLoadNanos;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Lookups that went to the database, each one a load
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Entries dropped to stay within the maximum size
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Times the whole cache was dropped because the table changed
+     */
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public double getHitRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    public double getAverageLoadMillis() {
+        return missCount == 0 ? 0.0 : totalLoadNanos / 1_000_000.0 / missCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "ReadThroughCacheStats[table=%s, size=%d, max=%d, hits=%d, misses=%d, hitRatio=%.1f%%, evictions=%d, " +
+            "invalidations=%d, avgLoad=%.2fms]",
+            table, size, maxSize, hitCount, missCount, getHitRatio() * 100, evictionCount,
+            invalidationCount, getAverageLoadMillis());
+    }
+}
@@ -0,0 +1,37 @@
+package com.pocketlawyer.dao;
+
+import com.pocketlawyer.config.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Statements whose results are streamed instead of buffered by the driver
+ * By default MySQL Connector/J reads a whole result set into memory before
+ * the first row is returned. A forward-only, read-only statement with a fetch
+ * size of Integer.MIN_VALUE makes it hand over rows as they arrive, so reading
+ * a table of any size takes the memory of one row. Until the result set is
+ * closed the connection can run no other statement, and MySQL drops it if
+ * the rows are not read within net_write_timeout, so consumers of a stream
+ * should be quick and must not query the database themselves. The sentinel
+ * is a MySQL Connector/J convention, so it is keyed on the driver rather than
+ * the database: other drivers, MariaDB Connector/J among them, reject it and
+ * get an ordinary fetch size of DatabaseConfig.STREAM_FETCH_SIZE.
+ */
+final class ResultStreaming {
+
+    private ResultStreaming() {
+    }
+
+    static PreparedStatement prepare(Connection conn, String query) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                                                        ResultSet.CONCUR_READ_ONLY);
+        // "MySQL Connector/J", or "MySQL-AB JDBC Driver" before 8.0
+        String driver = conn.getMetaData().getDriverName();
+        boolean connectorJ = driver != null && driver.regionMatches(true, 0, "MySQL", 0, 5);
+        pstmt.setFetchSize(connectorJ ? Integer.MIN_VALUE : DatabaseConfig.STREAM_FETCH_SIZE);
+        return pstmt;
+    }
+}
@@ -0,0 +1,322 @@
+package com.pocketlawyer.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool
+ * Connections handed out are proxies: closing them returns the physical
+ * connection to the pool instead of tearing down the MySQL session.
+ * Statements created inside a QueryScope are registered with it.
+ */
+public class ConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxConnections;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+
+    // Caps the number of connections that may be checked out at once
+    private final Semaphore permits;
+    // Most recently returned connection first, so hot connections stay warm (guarded by this)
+    private final Deque<PhysicalConnection> idleConnections = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, int maxConnections,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, int validationTimeoutSeconds) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be positive");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxConnections = maxConnections;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxConnections, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evictionInterval = Math.max(1000L, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections,
+            evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the acquire timeout for one to free up.
+     * The caller must close the returned connection to give it back.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        QueryScope scope = QueryScope.current();
+        if (scope != null) {
+            scope.checkActive();
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis +
+                                              "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            PhysicalConnection physical = takeValidIdleConnection();
+            if (physical == null) {
+                physical = openConnection();
+            }
+            activeCount.incrementAndGet();
+            return physical.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Get current pool usage statistics
+     */
+    public PoolStats getStats() {
+        int idle;
+        synchronized (this) {
+            idle = idleConnections.size();
+        }
+        return new PoolStats(activeCount.get(), idle, maxConnections,
+            borrowCount.get(), timeoutCount.get(), createdCount.get(), evictedCount.get(),
+            totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    /**
+     * Close all idle connections and stop accepting new borrows.
+     * Connections still checked out are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+
+        Deque<PhysicalConnection> toClose;
+        synchronized (this) {
+            toClose = new ArrayDeque<>(idleConnections);
+            idleConnections.clear();
+        }
+        toClose.forEach(PhysicalConnection::closeQuietly);
+        logger.info("Connection pool closed: {}", getStats());
+    }
+
+    private PhysicalConnection takeValidIdleConnection() {
+        while (true) {
+            PhysicalConnection physical;
+            synchronized (this) {
+                physical = idleConnections.pollFirst();
+            }
+            if (physical == null) {
+                return null;
+            }
+            if (physical.isUsable(validationTimeoutSeconds)) {
+                return physical;
+            }
+            logger.debug("Discarding stale pooled connection");
+            evictedCount.incrementAndGet();
+            physical.closeQuietly();
+        }
+    }
+
+    private PhysicalConnection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        createdCount.incrementAndGet();
+        logger.info("Database connection established ({} of max {})", activeCount.get() + 1, maxConnections);
+        return new PhysicalConnection(connection);
+    }
+
+    private void release(PhysicalConnection physical) {
+        activeCount.decrementAndGet();
+        try {
+            if (closed || !physical.reset()) {
+                physical.closeQuietly();
+                return;
+            }
+            physical.lastUsed = System.currentTimeMillis();
+            synchronized (this) {
+                idleConnections.addFirst(physical);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        Deque<PhysicalConnection> expired = new ArrayDeque<>();
+        synchronized (this) {
+            Iterator<PhysicalConnection> it = idleConnections.descendingIterator();
+            while (it.hasNext()) {
+                PhysicalConnection physical = it.next();
+                if (physical.lastUsed >= cutoff) {
+                    break;
+                }
+                it.remove();
+                expired.add(physical);
+            }
+        }
+        if (!expired.isEmpty()) {
+            evictedCount.addAndGet(expired.size());
+            expired.forEach(PhysicalConnection::closeQuietly);
+            logger.debug("Evicted {} idle database connections", expired.size());
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * A real MySQL connection owned by the pool
+     */
+    private final class PhysicalConnection {
+        private final Connection connection;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        PhysicalConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new LeaseHandler(this));
+        }
+
+        boolean isUsable(int timeoutSeconds) {
+            try {
+                return !connection.isClosed() && connection.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Undo per-lease session changes; returns false if the connection is broken
+         */
+        boolean reset() {
+            try {
+                if (connection.isClosed()) {
+                    return false;
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                connection.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                logger.warn("Dropping pooled connection that failed to reset", e);
+                return false;
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing pooled connection", e);
+            }
+        }
+    }
+
+    /**
+     * Routes calls to the physical connection until the lease is closed
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PhysicalConnection physical;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        LeaseHandler(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || physical.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical.connection + "]";
+                default:
+                    break;
+            }
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            Object result;
+            try {
+                result = method.invoke(physical.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            // Statements of an asynchronous call can be cancelled through its scope
+            QueryScope scope = QueryScope.current();
+            if (scope != null && result instanceof Statement) {
+                scope.register((Statement) result);
+            }
+            return result;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -16,7 +15,7 @@ public class DatabaseManager {
     
     private static final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
     private static DatabaseManager instance;
-    private Connection connection;
+    private final ConnectionPool connectionPool;
     
     private DatabaseManager() {
         try {
@@ -27,6 +26,17 @@ public class DatabaseManager {
             logger.error("MySQL JDBC Driver not found", e);
             throw new RuntimeException("Failed to load MySQL JDBC Driver", e);
         }
+        
+        connectionPool = new ConnectionPool(
+            DatabaseConfig.DB_URL,
+            DatabaseConfig.DB_USER,
+            DatabaseConfig.DB_PASSWORD,
+            DatabaseConfig.MAX_CONNECTIONS,
+            DatabaseConfig.CONNECTION_TIMEOUT,
+            DatabaseConfig.IDLE_TIMEOUT,
+            DatabaseConfig.VALIDATION_TIMEOUT
+        );
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closeConnection, "connection-pool-shutdown"));
     }
     
     /**
@@ -39,19 +49,18 @@ public class DatabaseManager {
         return instance;
     }
     
-    /*
-     * new connection 
+    /**
+     * Borrow a pooled connection; closing it returns it to the pool
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(
-                DatabaseConfig.DB_URL,
-                DatabaseConfig.DB_USER,
-                DatabaseConfig.DB_PASSWORD
-            );
-            logger.info("Database connection established");
-        }
-        return connection;
+        return connectionPool.borrow();
+    }
+    
+    /**
+     * Get connection pool statistics (active, idle, wait time)
+     */
+    public PoolStats getPoolStats() {
+        return connectionPool.getStats();
     }
     
     /**
@@ -70,17 +79,10 @@ public class DatabaseManager {
     }
     
     /**
-     * Close database connection
+     * Close all pooled database connections
      */
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                logger.info("Database connection closed");
-            }
-        } catch (SQLException e) {
-            logger.error("Error closing database connection", e);
-        }
+        connectionPool.close();
     }
     
     /**
@@ -0,0 +1,75 @@
+package com.pocketlawyer.database;
+
+/**
+ * Point-in-time snapshot of connection pool usage
+ */
+public class PoolStats {
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int maxConnections;
+    private final long borrowCount;
+    private final long timeoutCount;
+    private final long createdCount;
+    private final long evictedCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    public PoolStats(int activeConnections, int idleConnections, int maxConnections,
+                     long borrowCount, long timeoutCount, long createdCount, long evictedCount,
+                     long totalWaitNanos, long maxWaitNanos) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.maxConnections = maxConnections;
+        this.borrowCount = borrowCount;
+        this.timeoutCount = timeoutCount;
+        this.createdCount = createdCount;
+        this.evictedCount = evictedCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    public double getAverageWaitMillis() {
+        return borrowCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "PoolStats[active=%d, idle=%d, max=%d, borrows=%d, timeouts=%d, created=%d, evicted=%d, " +
+            "avgWait=%.2fms, maxWait=%.2fms]",
+            activeConnections, idleConnections, maxConnections, borrowCount, timeoutCount,
+            createdCount, evictedCount, getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
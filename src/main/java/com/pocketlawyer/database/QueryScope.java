@@ -0,0 +1,121 @@
+package com.pocketlawyer.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The statements of one database call, so the call can be cancelled while they run
+ * While a scope is entered on a thread, every statement that thread creates on
+ * a pooled connection is registered with it and given a query timeout of the
+ * time left until the scope's deadline. Cancelling the scope calls
+ * Statement.cancel() on the statements still open, which on MySQL kills the
+ * running query on the server, and makes borrowing a connection or creating a
+ * statement in the scope fail from then on.
+ */
+public final class QueryScope {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryScope.class);
+    private static final ThreadLocal<QueryScope> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    // Statements created in the scope (guarded by this)
+    private final List<Statement> statements = new ArrayList<>();
+    private boolean cancelled;
+
+    public QueryScope(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Scope entered on the calling thread, or null
+     */
+    static QueryScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Whether the scope entered on the calling thread was cancelled; false outside any scope
+     * Lets a call that consumes rows as they arrive stop between rows.
+     */
+    public static boolean isCurrentCancelled() {
+        QueryScope scope = CURRENT.get();
+        return scope != null && scope.isCancelled();
+    }
+
+    /**
+     * Register statements created by the calling thread with this scope until exit
+     */
+    public void enter() {
+        CURRENT.set(this);
+    }
+
+    public void exit() {
+        CURRENT.remove();
+        synchronized (this) {
+            statements.clear();
+        }
+    }
+
+    /**
+     * Cancel the statements of the scope; may be called from any thread
+     */
+    public void cancel() {
+        List<Statement> open;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            open = new ArrayList<>(statements);
+        }
+        for (Statement statement : open) {
+            try {
+                if (!statement.isClosed()) {
+                    statement.cancel();
+                }
+            } catch (SQLException e) {
+                logger.debug("Error cancelling statement", e);
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Fail if the scope was cancelled or its deadline has passed
+     */
+    void checkActive() throws SQLException {
+        if (isCancelled()) {
+            throw new SQLException("Database call was cancelled");
+        }
+        if (System.nanoTime() - deadlineNanos >= 0) {
+            throw new SQLTimeoutException("Database call timed out");
+        }
+    }
+
+    /**
+     * Track a statement created in the scope and limit it to the time left; closes it if the scope is over
+     */
+    void register(Statement statement) throws SQLException {
+        try {
+            synchronized (this) {
+                checkActive();
+                statements.add(statement);
+            }
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            statement.setQueryTimeout((int) Math.max(1, (remainingMillis + 999) / 1000));
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * DEFLATE-compressed question and answer texts by entry position, kept off the heap
+ * Texts are only needed for the entry that is returned, so they are kept apart
+ * from the scoring structures. Consecutive entries are compressed together in
+ * blocks of up to BLOCK_SIZE; the blocks live in a direct buffer, or in the
+ * mapped index file, and one block is inflated per lookup. Blocks can be
+ * copied compressed into another store, so a patched index only compresses
+ * the entries around its changes.
+ */
+final class AnswerStore {
+
+    private static final int BLOCK_SIZE = 16;
+    private static final int NULL_LENGTH = -1;
+
+    private static final ThreadLocal<Decoder> DECODER = ThreadLocal.withInitial(Decoder::new);
+
+    // Block b holds entries [blockStarts[b], blockStarts[b + 1]), stored in
+    // blocks[blockOffsets[b], blockOffsets[b + 1]) and inflating to blockLengths[b] bytes
+    private final int[] blockStarts;
+    private final int[] blockOffsets;
+    private final int[] blockLengths;
+    private final ByteBuffer blocks;
+
+    private AnswerStore(int[] blockStarts, int[] blockOffsets, int[] blockLengths, ByteBuffer blocks) {
+        this.blockStarts = blockStarts;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.blocks = blocks;
+    }
+
+    int size() {
+        return blockStarts[blockStarts.length - 1];
+    }
+
+    /**
+     * Block holding an entry
+     */
+    int blockOf(int doc) {
+        if (doc < 0 || doc >= size()) {
+            throw new IndexOutOfBoundsException("Entry " + doc + " of " + size());
+        }
+        int b = Arrays.binarySearch(blockStarts, doc);
+        return b >= 0 ? b : -b - 2;
+    }
+
+    int blockStart(int block) {
+        return blockStarts[block];
+    }
+
+    int blockEnd(int block) {
+        return blockStarts[block + 1];
+    }
+
+    String getQuestion(int doc) {
+        return DECODER.get().decode(this, doc, false);
+    }
+
+    String getAnswer(int doc) {
+        return DECODER.get().decode(this, doc, true);
+    }
+
+    /**
+     * Set the question and answer of an entry on qa, inflating its block once
+     */
+    void copyTexts(int doc, LegalQA qa) {
+        Decoder decoder = DECODER.get();
+        qa.setQuestion(decoder.decode(this, doc, false));
+        qa.setAnswer(decoder.next());
+    }
+
+    /**
+     * Compressed bytes held outside the heap
+     */
+    long compressedBytes() {
+        return blockOffsets[blockOffsets.length - 1];
+    }
+
+    void write(IndexOutput out) throws IOException {
+        out.writeIntArray(blockStarts);
+        out.writeIntArray(blockOffsets);
+        out.writeIntArray(blockLengths);
+        out.writeInt(blocks.limit());
+        out.writeBuffer(blocks);
+    }
+
+    /**
+     * Read a store whose blocks stay in the input's buffer rather than being copied
+     */
+    static AnswerStore read(IndexInput in) throws IOException {
+        int[] blockStarts = in.readIntArray();
+        int[] blockOffsets = in.readIntArray();
+        int[] blockLengths = in.readIntArray();
+        return new AnswerStore(blockStarts, blockOffsets, blockLengths, in.slice(in.readInt()));
+    }
+
+    /**
+     * Inflates blocks into a per-thread buffer, remembering the last block and
+     * position so a question can be followed by its answer, and entries of the
+     * same block by each other, without re-inflating. Each inflation uses its
+     * own Inflater and ends it at once, so a thread that goes away leaves no
+     * native zlib memory behind.
+     */
+    private static final class Decoder {
+        private byte[] buffer = new byte[8192];
+        private ByteBuffer block;
+        // Weak, so an idle thread does not keep a replaced snapshot's texts alive
+        private WeakReference<AnswerStore> blockStore = new WeakReference<>(null);
+        private int blockIndex = -1;
+
+        String decode(AnswerStore store, int doc, boolean answer) {
+            int b = store.blockOf(doc);
+            inflate(store, b);
+            for (int skip = (doc - store.blockStarts[b]) * 2 + (answer ? 1 : 0); skip > 0; skip--) {
+                int length = block.getInt();
+                block.position(block.position() + Math.max(length, 0));
+            }
+            return next();
+        }
+
+        String next() {
+            int length = block.getInt();
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            String text = new String(buffer, block.position(), length, StandardCharsets.UTF_8);
+            block.position(block.position() + length);
+            return text;
+        }
+
+        private void inflate(AnswerStore store, int b) {
+            if (b == blockIndex && blockStore.get() == store) {
+                block.rewind();
+                return;
+            }
+            blockIndex = -1;
+            int length = store.blockLengths[b];
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            ByteBuffer compressed = store.blocks.duplicate();
+            compressed.limit(store.blockOffsets[b + 1]).position(store.blockOffsets[b]);
+
+            Inflater inflater = new Inflater();
+            inflater.setInput(compressed);
+            try {
+                int inflated = 0;
+                while (inflated < length && !inflater.finished()) {
+                    int n = inflater.inflate(buffer, inflated, length - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if (inflated != length) {
+                    throw new IllegalStateException("Truncated answer block " + b);
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt answer block " + b, e);
+            } finally {
+                inflater.end();
+            }
+            block = ByteBuffer.wrap(buffer, 0, length);
+            blockStore = new WeakReference<>(store);
+            blockIndex = b;
+        }
+    }
+
+    /**
+     * Collects texts in entry order and compresses each full block as it goes
+     */
+    static final class Builder {
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private byte[] raw = new byte[8192];
+        private int rawLength;
+        private byte[] compressed = new byte[1 << 16];
+        private int compressedLength;
+        private int[] blockStarts = new int[16];
+        private int[] blockOffsets = new int[16];
+        private int[] blockLengths = new int[16];
+        private int blockCount;
+        // Entries added since the last block was closed
+        private int pending;
+
+        void add(String question, String answer) {
+            append(question);
+            append(answer);
+            if (++pending == BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        /**
+         * Add the texts of an entry of another store without decoding them twice
+         */
+        void add(AnswerStore source, int doc) {
+            Decoder decoder = DECODER.get();
+            String question = decoder.decode(source, doc, false);
+            add(question, decoder.next());
+        }
+
+        private void append(String text) {
+            byte[] bytes = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+            int length = bytes == null ? 0 : bytes.length;
+            ensureRaw(Integer.BYTES + length);
+            int prefix = bytes == null ? NULL_LENGTH : length;
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                raw[rawLength++] = (byte) (prefix >>> shift);
+            }
+            if (bytes != null) {
+                System.arraycopy(bytes, 0, raw, rawLength, length);
+                rawLength += length;
+            }
+        }
+
+        private void ensureRaw(int extra) {
+            if (rawLength + extra > raw.length) {
+                raw = Arrays.copyOf(raw, Math.max(raw.length * 2, rawLength + extra));
+            }
+        }
+
+        /**
+         * Add a whole block of another store as it is, without inflating it
+         */
+        void copyBlock(AnswerStore source, int block) {
+            if (pending > 0) {
+                flushBlock();
+            }
+            int length = source.blockOffsets[block + 1] - source.blockOffsets[block];
+            ensureCompressed(length);
+            ByteBuffer bytes = source.blocks.duplicate();
+            bytes.limit(source.blockOffsets[block + 1]).position(source.blockOffsets[block]);
+            bytes.get(compressed, compressedLength, length);
+
+            int entries = source.blockEnd(block) - source.blockStart(block);
+            closeBlock(entries, source.blockLengths[block]);
+            compressedLength += length;
+        }
+
+        private void flushBlock() {
+            closeBlock(pending, rawLength);
+            deflater.reset();
+            deflater.setInput(raw, 0, rawLength);
+            deflater.finish();
+            while (!deflater.finished()) {
+                ensureCompressed(1);
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+            }
+            rawLength = 0;
+            pending = 0;
+        }
+
+        /**
+         * Record the next block, starting at the current compressed length
+         */
+        private void closeBlock(int entries, int inflatedLength) {
+            if (blockCount + 1 >= blockOffsets.length) {
+                blockStarts = Arrays.copyOf(blockStarts, blockStarts.length * 2);
+                blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+                blockLengths = Arrays.copyOf(blockLengths, blockLengths.length * 2);
+            }
+            blockOffsets[blockCount] = compressedLength;
+            blockLengths[blockCount] = inflatedLength;
+            blockStarts[blockCount + 1] = blockStarts[blockCount] + entries;
+            blockCount++;
+        }
+
+        private void ensureCompressed(int extra) {
+            if (compressedLength + extra > compressed.length) {
+                compressed = Arrays.copyOf(compressed, Math.max(compressed.length * 2, compressedLength + extra));
+            }
+        }
+
+        AnswerStore build() {
+            if (pending > 0) {
+                flushBlock();
+            }
+            deflater.end();
+            blockOffsets[blockCount] = compressedLength;
+
+            ByteBuffer blocks = ByteBuffer.allocateDirect(compressedLength);
+            blocks.put(compressed, 0, compressedLength).flip();
+            return new AnswerStore(Arrays.copyOf(blockStarts, blockCount + 1),
+                Arrays.copyOf(blockOffsets, blockCount + 1), Arrays.copyOf(blockLengths, blockCount), blocks);
+        }
+    }
+}
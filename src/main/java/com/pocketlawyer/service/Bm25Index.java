@@ -0,0 +1,330 @@
+package com.pocketlawyer.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BM25F statistics over the question, keywords and answer fields
+ * Document frequencies, field lengths and per-field term frequencies are
+ * computed once at load time and kept in primitive arrays indexed by term ID.
+ */
+final class Bm25Index {
+
+    static final int QUESTION = 0;
+    static final int KEYWORDS = 1;
+    static final int ANSWER = 2;
+    private static final int FIELD_COUNT = 3;
+
+    // Saturation and per-field weight / length normalization
+    private static final double K1 = 1.2;
+    private static final double[] FIELD_WEIGHTS = {1.0, 1.5, 0.5};
+    private static final double[] FIELD_B = {0.75, 0.5, 0.75};
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final int documentCount;
+    private final int[][] fieldLengths;
+    private final double[] averageFieldLengths;
+
+    // Indexed by term ID: matching documents, per-field frequencies and IDF
+    private final int[][] docs;
+    private final int[][][] termFrequencies;
+    private final double[] idf;
+
+    private Bm25Index(int documentCount, int[][] fieldLengths, int[][] docs, int[][][] termFrequencies) {
+        this.documentCount = documentCount;
+        this.fieldLengths = fieldLengths;
+        this.docs = docs;
+        this.termFrequencies = termFrequencies;
+
+        this.averageFieldLengths = new double[FIELD_COUNT];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            long total = 0;
+            for (int length : fieldLengths[field]) {
+                total += length;
+            }
+            averageFieldLengths[field] = documentCount == 0 ? 1.0 : Math.max(1.0, (double) total / documentCount);
+        }
+
+        this.idf = new double[docs.length];
+        for (int term = 0; term < docs.length; term++) {
+            idf[term] = idf(docs[term].length);
+        }
+    }
+
+    /**
+     * Score every document sharing a term with the query into the scratch candidates
+     * Scores are normalized to 0..1 by the query's total IDF. Unknown query terms
+     * count toward the normalizer with the highest IDF, so queries full of
+     * unmatched words score lower; corrected terms score at their reduced
+     * weight but count in full.
+     */
+    void score(QueryScratch scratch) {
+        scratch.resetCandidates(documentCount);
+        score(scratch, 0, documentCount);
+    }
+
+    /**
+     * Add the documents in [fromDoc, toDoc) to the current candidates with normalized scores
+     * Corpus statistics stay global, so a document scores the same whichever
+     * range it is scored in.
+     */
+    void score(QueryScratch scratch, int fromDoc, int toDoc) {
+        int firstSlot = scratch.candidateCount();
+        int[] terms = scratch.terms();
+
+        for (int t = 0; t < scratch.termCount(); t++) {
+            int term = terms[t];
+            if (term >= docs.length) {
+                continue;
+            }
+            int[] termDocs = docs[term];
+            for (int i = Postings.lowerBound(termDocs, fromDoc); i < termDocs.length && termDocs[i] < toDoc; i++) {
+                double tf = 0.0;
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    tf += weightedFrequency(term, i, field, termDocs[i]);
+                }
+                scratch.addScore(scratch.slotOf(termDocs[i]), scratch.termWeight(t) * idf[term] * tf / (K1 + tf));
+            }
+        }
+
+        double maxScore = maxScore(scratch);
+        if (maxScore > 0.0) {
+            scratch.scaleScores(firstSlot, 1.0 / maxScore);
+        }
+    }
+
+    /**
+     * Split one document's normalized score into question, keywords and answer shares
+     * The shares sum to the score computed by score(); indexed by the field constants.
+     */
+    double[] explain(QueryScratch scratch, int doc) {
+        double[] shares = new double[FIELD_COUNT];
+        double[] fieldTf = new double[FIELD_COUNT];
+        int[] terms = scratch.terms();
+
+        for (int t = 0; t < scratch.termCount(); t++) {
+            int term = terms[t];
+            int i = term < docs.length ? Arrays.binarySearch(docs[term], doc) : -1;
+            if (i < 0) {
+                continue;
+            }
+            double tf = 0.0;
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                fieldTf[field] = weightedFrequency(term, i, field, doc);
+                tf += fieldTf[field];
+            }
+            double termScore = scratch.termWeight(t) * idf[term] * tf / (K1 + tf);
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                shares[field] += termScore * fieldTf[field] / tf;
+            }
+        }
+
+        double maxScore = maxScore(scratch);
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            shares[field] = maxScore > 0.0 ? shares[field] / maxScore : 0.0;
+        }
+        return shares;
+    }
+
+    /**
+     * Number of documents containing a term in any field
+     */
+    int documentFrequency(int term) {
+        return term >= 0 && term < docs.length ? docs[term].length : 0;
+    }
+
+    /**
+     * Documents containing a term, ascending; callers must not modify the array
+     */
+    int[] postings(int term) {
+        return term < docs.length ? docs[term] : NO_POSTINGS;
+    }
+
+    /**
+     * Occurrences of a term in all fields of its i-th posting
+     */
+    int totalFrequency(int term, int i) {
+        int total = 0;
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            total += termFrequencies[field][term][i];
+        }
+        return total;
+    }
+
+    /**
+     * Length-normalized, weighted frequency of the i-th posting of a term in one field
+     */
+    private double weightedFrequency(int term, int i, int field, int doc) {
+        int freq = termFrequencies[field][term][i];
+        if (freq == 0) {
+            return 0.0;
+        }
+        double norm = 1.0 - FIELD_B[field] +
+            FIELD_B[field] * fieldLengths[field][doc] / averageFieldLengths[field];
+        return FIELD_WEIGHTS[field] * freq / norm;
+    }
+
+    /**
+     * Upper bound of a query's raw score, used to normalize scores into 0..1
+     */
+    private double maxScore(QueryScratch scratch) {
+        double maxScore = scratch.unknownTermCount() * idf(0);
+        int[] terms = scratch.terms();
+        for (int t = 0; t < scratch.termCount(); t++) {
+            maxScore += terms[t] < idf.length ? idf[terms[t]] : idf(0);
+        }
+        return maxScore;
+    }
+
+    void write(IndexOutput out) throws IOException {
+        out.writeInt(documentCount);
+        out.writeIntArrays(fieldLengths);
+        out.writeIntArrays(docs);
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            out.writeIntArrays(termFrequencies[field]);
+        }
+    }
+
+    static Bm25Index read(IndexInput in) throws IOException {
+        int documentCount = in.readInt();
+        int[][] fieldLengths = in.readIntArrays();
+        int[][] docs = in.readIntArrays();
+        int[][][] termFrequencies = new int[FIELD_COUNT][][];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            termFrequencies[field] = in.readIntArrays();
+        }
+        return new Bm25Index(documentCount, fieldLengths, docs, termFrequencies);
+    }
+
+    /**
+     * Combine the documents of two indexes under new positions
+     * aMap and bMap give each document's new position, or -1 to drop it, and
+     * must be increasing over the documents they keep. IDF and average field
+     * lengths are recomputed over the combined documents.
+     */
+    static Bm25Index merge(Bm25Index a, int[] aMap, Bm25Index b, int[] bMap, int documentCount, int termCount) {
+        int[][] fieldLengths = new int[FIELD_COUNT][documentCount];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            copyLengths(a.fieldLengths[field], aMap, fieldLengths[field]);
+            copyLengths(b.fieldLengths[field], bMap, fieldLengths[field]);
+        }
+
+        int[][] docs = new int[termCount][];
+        int[][][] freqs = new int[FIELD_COUNT][termCount][];
+        int[] mergedDocs = new int[documentCount];
+        int[][] mergedFreqs = new int[FIELD_COUNT][documentCount];
+        for (int term = 0; term < termCount; term++) {
+            int[] aDocs = a.postings(term);
+            int[] bDocs = b.postings(term);
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < aDocs.length || j < bDocs.length) {
+                int aDoc = i < aDocs.length ? aMap[aDocs[i]] : Integer.MAX_VALUE;
+                int bDoc = j < bDocs.length ? bMap[bDocs[j]] : Integer.MAX_VALUE;
+                if (aDoc < 0) {
+                    i++;
+                } else if (bDoc < 0) {
+                    j++;
+                } else if (aDoc < bDoc) {
+                    copyPosting(a, term, i++, aDoc, count++, mergedDocs, mergedFreqs);
+                } else {
+                    copyPosting(b, term, j++, bDoc, count++, mergedDocs, mergedFreqs);
+                }
+            }
+            docs[term] = count == 0 ? NO_POSTINGS : Arrays.copyOf(mergedDocs, count);
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                freqs[field][term] = count == 0 ? NO_POSTINGS : Arrays.copyOf(mergedFreqs[field], count);
+            }
+        }
+        return new Bm25Index(documentCount, fieldLengths, docs, freqs);
+    }
+
+    private static void copyLengths(int[] lengths, int[] map, int[] target) {
+        for (int doc = 0; doc < lengths.length; doc++) {
+            if (map[doc] >= 0) {
+                target[map[doc]] = lengths[doc];
+            }
+        }
+    }
+
+    private static void copyPosting(Bm25Index source, int term, int i, int doc, int position,
+                                    int[] docs, int[][] freqs) {
+        docs[position] = doc;
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            freqs[field][position] = source.termFrequencies[field][term][i];
+        }
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1.0 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * Accumulates per-document field terms, then freezes them into postings
+     */
+    static final class Builder {
+        private final List<int[]> lengths = new ArrayList<>();
+        // Per term ID: rows of {doc, questionTf, keywordsTf, answerTf}
+        private final List<List<int[]>> termDocs = new ArrayList<>();
+
+        /**
+         * Add the next document as term IDs including repeats
+         * Its position is the number of documents added before it.
+         */
+        void addDocument(int[] question, int[] keywords, int[] answer) {
+            int doc = lengths.size();
+            lengths.add(new int[] {question.length, keywords.length, answer.length});
+            addField(doc, QUESTION, question);
+            addField(doc, KEYWORDS, keywords);
+            addField(doc, ANSWER, answer);
+        }
+
+        private void addField(int doc, int field, int[] terms) {
+            for (int term : terms) {
+                while (termDocs.size() <= term) {
+                    termDocs.add(new ArrayList<>(2));
+                }
+                List<int[]> rows = termDocs.get(term);
+                int[] last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+                if (last == null || last[0] != doc) {
+                    last = new int[1 + FIELD_COUNT];
+                    last[0] = doc;
+                    rows.add(last);
+                }
+                last[1 + field]++;
+            }
+        }
+
+        Bm25Index build(int termCount) {
+            int documentCount = lengths.size();
+            int[][] fieldLengths = new int[FIELD_COUNT][documentCount];
+            for (int doc = 0; doc < documentCount; doc++) {
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    fieldLengths[field][doc] = lengths.get(doc)[field];
+                }
+            }
+
+            int[][] docs = new int[termCount][];
+            int[][][] freqs = new int[FIELD_COUNT][termCount][];
+            for (int term = 0; term < termCount; term++) {
+                List<int[]> rows = term < termDocs.size() ? termDocs.get(term) : new ArrayList<>();
+                docs[term] = rows.isEmpty() ? NO_POSTINGS : new int[rows.size()];
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    freqs[field][term] = rows.isEmpty() ? NO_POSTINGS : new int[rows.size()];
+                }
+                for (int i = 0; i < rows.size(); i++) {
+                    int[] row = rows.get(i);
+                    docs[term][i] = row[0];
+                    for (int field = 0; field < FIELD_COUNT; field++) {
+                        freqs[field][term][i] = row[1 + field];
+                    }
+                }
+            }
+            return new Bm25Index(documentCount, fieldLengths, docs, freqs);
+        }
+    }
+}
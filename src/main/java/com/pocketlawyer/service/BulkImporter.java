@@ -0,0 +1,410 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.config.DatabaseConfig;
+import com.pocketlawyer.dao.BulkImportDAO;
+import com.pocketlawyer.dao.CategoryDAO;
+import com.pocketlawyer.dao.LegalQADAO;
+import com.pocketlawyer.model.LegalCategory;
+import com.pocketlawyer.model.LegalQA;
+import com.pocketlawyer.model.LegalRight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Streams CSV or JSON Lines files into legal_qa or legal_rights
+ * Records are read one at a time and written in chunks of IMPORT_CHUNK_SIZE,
+ * each committed in one transaction with the import's checkpoint. An import
+ * that stops on an error is resumed by running it again: records up to the
+ * checkpoint are read past without being written. Running a finished import
+ * again writes nothing unless it is restarted.
+ *
+ * Columns are matched by name. Q&A records need question and answer, and may
+ * have keywords, priority and a category; rights need title and description,
+ * and may have details, source and a category. The category is given as
+ * category_id or as a category name.
+ *
+ * Q&A records are checked against the existing pairs and the earlier records
+ * with a NearDuplicateDetector. Near-duplicates are counted and logged, and
+ * left out if skipping them is turned on.
+ */
+public class BulkImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImporter.class);
+
+    // Skipped records are logged one by one up to this many per run, then only counted
+    private static final int MAX_LOGGED_SKIPS = 20;
+
+    /**
+     * Table an import writes to
+     */
+    public enum Target {
+        LEGAL_QA("legal_qa"),
+        LEGAL_RIGHTS("legal_rights");
+
+        private final String tableName;
+
+        Target(String tableName) {
+            this.tableName = tableName;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        /**
+         * Target by table name, or null if there is none
+         */
+        public static Target fromTableName(String tableName) {
+            for (Target target : values()) {
+                if (target.tableName.equalsIgnoreCase(tableName)) {
+                    return target;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final BulkImportDAO importDAO;
+    private final CategoryDAO categoryDAO;
+    private final LegalQADAO qaDAO;
+    private volatile boolean skipNearDuplicates;
+
+    public BulkImporter() {
+        this.importDAO = new BulkImportDAO();
+        this.categoryDAO = new CategoryDAO();
+        this.qaDAO = new LegalQADAO();
+    }
+
+    /**
+     * Leave out Q&A records that near-duplicate an existing pair or an earlier record, instead of only reporting them
+     */
+    public void setSkipNearDuplicates(boolean skipNearDuplicates) {
+        this.skipNearDuplicates = skipNearDuplicates;
+    }
+
+    /**
+     * Import a file, logging progress after every chunk
+     *
+     * @see #importFile(Path, Target, boolean, Consumer)
+     */
+    public ImportStats importFile(Path file, Target target, boolean restart) {
+        return importFile(file, target, restart, BulkImporter::logProgress);
+    }
+
+    /**
+     * Import a .csv, .jsonl or .ndjson file, resuming after the last committed chunk of an earlier run
+     * An import is identified by its table, path and file size, so a file that
+     * was replaced by one of another size starts over.
+     *
+     * @param restart start from the first record even if an earlier run committed some
+     * @param listener called after every committed chunk and once at the end
+     * @return stats of this run; failed if it stopped before the end of the file
+     */
+    public ImportStats importFile(Path file, Target target, boolean restart, Consumer<ImportStats> listener) {
+        if (target == Target.LEGAL_QA) {
+            return run(file, target, restart, listener, BulkImporter::toQA, importDAO::importQAChunk,
+                this::loadDuplicateCheck);
+        }
+        return run(file, target, restart, listener, BulkImporter::toRight, importDAO::importRightsChunk, null);
+    }
+
+    /**
+     * Detector holding the questions already in legal_qa; records are labelled with their negated number
+     */
+    private DuplicateCheck<LegalQA> loadDuplicateCheck() {
+        List<LegalQA> existing = qaDAO.getAllQAWithoutAnswers();
+        NearDuplicateDetector detector = new NearDuplicateDetector(existing.size());
+        for (LegalQA qa : existing) {
+            detector.add(qa.getQaId(), qa.getQuestion(), qa.getKeywords());
+        }
+        return (qa, record) -> detector.add((int) -record, qa.getQuestion(), qa.getKeywords());
+    }
+
+    private <T> ImportStats run(Path file, Target target, boolean restart, Consumer<ImportStats> listener,
+                                RecordMapper<T> mapper, ChunkWriter<T> writer,
+                                Supplier<DuplicateCheck<T>> duplicateCheckLoader) {
+        long totalBytes;
+        try {
+            totalBytes = Files.size(file);
+        } catch (IOException e) {
+            logger.error("Cannot read import file {}", file, e);
+            ImportStats stats = new ImportStats(file.toString(), 0, 0, 0, 0, 0, 0, 0, 0, false, true);
+            listener.accept(stats);
+            return stats;
+        }
+        String source = target.getTableName() + ":" + file.toAbsolutePath().normalize() + ":" + totalBytes;
+        Progress progress = new Progress(source, totalBytes);
+
+        if (restart && !importDAO.clearCheckpoint(source)) {
+            return progress.report(listener, false, true);
+        }
+        long resumeAt = importDAO.getCheckpoint(source);
+        if (resumeAt < 0) {
+            return progress.report(listener, false, true);
+        }
+        if (resumeAt > 0) {
+            logger.info("Resuming import of {} after record {}", file, resumeAt);
+        }
+        Map<String, Integer> categoryIds = loadCategoryIds();
+        DuplicateCheck<T> duplicateCheck = duplicateCheckLoader == null ? null : duplicateCheckLoader.get();
+        boolean skipDuplicates = skipNearDuplicates;
+
+        try (CountingInputStream bytes = new CountingInputStream(Files.newInputStream(file));
+             RecordReader reader = openReader(file, new InputStreamReader(bytes, StandardCharsets.UTF_8))) {
+
+            progress.bytes = bytes;
+            while (progress.recordsRead < resumeAt && reader.next() != null) {
+                progress.recordsRead++;
+                progress.recordsResumed++;
+            }
+
+            List<T> chunk = new ArrayList<>();
+            long chunkRecords = 0;
+            Map<String, String> record;
+            while ((record = reader.next()) != null) {
+                progress.recordsRead++;
+                try {
+                    T row = mapper.map(record, categoryIds);
+                    int original = duplicateCheck == null ? NearDuplicateDetector.NONE
+                        : duplicateCheck.check(row, progress.recordsRead);
+                    if (original != NearDuplicateDetector.NONE && progress.nearDuplicates++ < MAX_LOGGED_SKIPS) {
+                        logger.warn("Record {} of {} is a near-duplicate of {}{}", progress.recordsRead, file,
+                            original > 0 ? "qa_id " + original : "record " + -(long) original,
+                            skipDuplicates ? ", skipping it" : "");
+                    }
+                    if (original == NearDuplicateDetector.NONE || !skipDuplicates) {
+                        chunk.add(row);
+                    }
+                } catch (IllegalArgumentException e) {
+                    if (progress.recordsSkipped++ < MAX_LOGGED_SKIPS) {
+                        logger.warn("Skipping record {} of {}: {}", progress.recordsRead, file, e.getMessage());
+                    }
+                }
+                if (++chunkRecords == DatabaseConfig.IMPORT_CHUNK_SIZE) {
+                    if (!commit(writer, chunk, progress, listener)) {
+                        return progress.report(listener, false, true);
+                    }
+                    chunk.clear();
+                    chunkRecords = 0;
+                }
+            }
+            if (chunkRecords > 0 && !commit(writer, chunk, progress, listener)) {
+                return progress.report(listener, false, true);
+            }
+            return progress.report(listener, true, false);
+
+        } catch (IOException e) {
+            logger.error("Import of {} stopped at record {}", file, progress.recordsRead, e);
+            return progress.report(listener, false, true);
+        }
+    }
+
+    private static <T> boolean commit(ChunkWriter<T> writer, List<T> chunk, Progress progress,
+                                      Consumer<ImportStats> listener) {
+        if (!writer.write(progress.source, progress.recordsRead, chunk)) {
+            return false;
+        }
+        progress.rowsImported += chunk.size();
+        progress.report(listener, false, false);
+        return true;
+    }
+
+    private static RecordReader openReader(Path file, Reader in) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvRecordReader(in);
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return new JsonLinesRecordReader(in);
+        }
+        in.close();
+        throw new IOException("Unsupported import file type: " + file.getFileName());
+    }
+
+    private Map<String, Integer> loadCategoryIds() {
+        Map<String, Integer> ids = new HashMap<>();
+        for (LegalCategory category : categoryDAO.getAllCategories()) {
+            ids.put(category.getCategoryName().toLowerCase(Locale.ROOT), category.getCategoryId());
+        }
+        return ids;
+    }
+
+    private static LegalQA toQA(Map<String, String> record, Map<String, Integer> categoryIds) {
+        LegalQA qa = new LegalQA(required(record, "question"), required(record, "answer"), optional(record, "keywords"));
+        qa.setCategoryId(categoryId(record, categoryIds));
+        String priority = optional(record, "priority");
+        qa.setPriority(priority == null ? 0 : parseInt("priority", priority));
+        return qa;
+    }
+
+    private static LegalRight toRight(Map<String, String> record, Map<String, Integer> categoryIds) {
+        LegalRight right = new LegalRight(required(record, "title"), required(record, "description"),
+            optional(record, "details"));
+        right.setCategoryId(categoryId(record, categoryIds));
+        right.setSource(optional(record, "source"));
+        return right;
+    }
+
+    /**
+     * Category from category_id, or from a category name; 0 if the record has neither
+     */
+    private static int categoryId(Map<String, String> record, Map<String, Integer> categoryIds) {
+        String id = optional(record, "category_id");
+        if (id != null) {
+            return parseInt("category_id", id);
+        }
+        String name = optional(record, "category");
+        if (name == null) {
+            return 0;
+        }
+        Integer named = categoryIds.get(name.toLowerCase(Locale.ROOT));
+        if (named == null) {
+            throw new IllegalArgumentException("unknown category '" + name + "'");
+        }
+        return named;
+    }
+
+    private static String required(Map<String, String> record, String column) {
+        String value = optional(record, column);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + column);
+        }
+        return value;
+    }
+
+    /**
+     * Trimmed value of a column, or null if it is missing or blank
+     */
+    private static String optional(Map<String, String> record, String column) {
+        String value = record.get(column);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static int parseInt(String column, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + column + " '" + value + "'");
+        }
+    }
+
+    private static void logProgress(ImportStats stats) {
+        if (stats.isFailed()) {
+            logger.error("Import of {} failed after {} rows; run it again to resume", stats.getSource(),
+                stats.getRowsImported());
+        } else if (stats.isFinished()) {
+            logger.info("Imported {} rows from {} in {} ms ({} rows/s, {} skipped, {} near-duplicates, "
+                + "{} already imported)", stats.getRowsImported(), stats.getSource(), stats.getElapsedMillis(),
+                Math.round(stats.getRowsPerSecond()), stats.getRecordsSkipped(), stats.getNearDuplicates(),
+                stats.getRecordsResumed());
+        } else {
+            logger.info("Imported {} rows, {}% of {} ({} rows/s)", stats.getRowsImported(),
+                String.format("%.1f", stats.getPercentDone()), stats.getSource(), Math.round(stats.getRowsPerSecond()));
+        }
+    }
+
+    /**
+     * Counters of a running import
+     */
+    private static final class Progress {
+        private final String source;
+        private final long totalBytes;
+        private final long startNanos = System.nanoTime();
+        private CountingInputStream bytes;
+        private long recordsRead;
+        private long rowsImported;
+        private long recordsSkipped;
+        private long recordsResumed;
+        private long nearDuplicates;
+
+        Progress(String source, long totalBytes) {
+            this.source = source;
+            this.totalBytes = totalBytes;
+        }
+
+        ImportStats report(Consumer<ImportStats> listener, boolean finished, boolean failed) {
+            ImportStats stats = new ImportStats(source, recordsRead, rowsImported, recordsSkipped, recordsResumed,
+                nearDuplicates, bytes == null ? 0 : bytes.count, totalBytes, (System.nanoTime() - startNanos) / 1_000_000,
+                finished, failed);
+            listener.accept(stats);
+            return stats;
+        }
+    }
+
+    /**
+     * Counts the bytes read, to report how much of the file is done
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordMapper<T> {
+        /**
+         * Row of a record; throws IllegalArgumentException if a required column is missing or invalid
+         */
+        T map(Map<String, String> record, Map<String, Integer> categoryIds);
+    }
+
+    @FunctionalInterface
+    private interface DuplicateCheck<T> {
+        /**
+         * Add a row and return the label of what it near-duplicates, or NearDuplicateDetector.NONE
+         */
+        int check(T row, long recordNumber);
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        boolean write(String source, long recordsDone, List<T> rows);
+    }
+}
@@ -0,0 +1,54 @@
+package com.pocketlawyer.service;
+
+/**
+ * Point-in-time snapshot of response cache counters
+ */
+public class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long coalescedCount;
+    private final long evictionCount;
+    private final int size;
+
+    public CacheStats(long hitCount, long missCount, long coalescedCount, long evictionCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.coalescedCount = coalescedCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Requests that waited on an identical in-flight computation instead of running their own
+     */
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getHitRatio() {
+        long total = hitCount + missCount + coalescedCount;
+        return total == 0 ? 0.0 : (double) (hitCount + coalescedCount) / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats[hits=%d, misses=%d, coalesced=%d, evictions=%d, size=%d, hitRatio=%.2f]",
+            hitCount, missCount, coalescedCount, evictionCount, size, getHitRatio());
+    }
+}
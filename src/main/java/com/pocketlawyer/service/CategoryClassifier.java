@@ -0,0 +1,320 @@
+package com.pocketlawyer.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Multinomial Naive Bayes classifier predicting the category of a query
+ * Trained whenever the index is built from the terms of every Q&A entry,
+ * grouped by category_id. The log of every smoothed term count is stored
+ * term-major in one float array, so classifying a query reads one contiguous
+ * row per query term. The counts themselves are kept as well, so a patched
+ * index adjusts them for the changed entries instead of training again.
+ */
+final class CategoryClassifier {
+
+    // Laplace smoothing of term counts
+    private static final double ALPHA = 1.0;
+
+    // Categories in ascending category_id, the order they first appear in among the entries
+    private final int[] categoryIds;
+    private final String[] categoryNames;
+    private final int[] documentCounts;
+    // termCounts[term * categoryCount + c] = occurrences of term in the entries of category c
+    private final int[] termCounts;
+    // logCounts[cell] = log(termCounts[cell] + ALPHA)
+    private final float[] logCounts;
+    private final int termCount;
+
+    private final double[] logPriors;
+    // log of the number of term occurrences in each category, smoothed over the terms still found in some entry
+    private final double[] logDenominators;
+
+    private CategoryClassifier(int[] categoryIds, String[] categoryNames, int[] documentCounts, int[] termCounts,
+                               float[] logCounts, int termCount) {
+        this.categoryIds = categoryIds;
+        this.categoryNames = categoryNames;
+        this.documentCounts = documentCounts;
+        this.termCounts = termCounts;
+        this.logCounts = logCounts;
+        this.termCount = termCount;
+
+        int categoryCount = categoryIds.length;
+        long documentCount = 0;
+        for (int count : documentCounts) {
+            documentCount += count;
+        }
+        long[] totals = new long[categoryCount];
+        // Terms a patch left without occurrences stay in the dictionary but not in the vocabulary
+        int vocabularySize = 0;
+        for (int term = 0; term < termCount; term++) {
+            boolean live = false;
+            for (int cell = term * categoryCount; cell < (term + 1) * categoryCount; cell++) {
+                totals[cell - term * categoryCount] += termCounts[cell];
+                live |= termCounts[cell] > 0;
+            }
+            if (live) {
+                vocabularySize++;
+            }
+        }
+        this.logPriors = new double[categoryCount];
+        this.logDenominators = new double[categoryCount];
+        for (int c = 0; c < categoryCount; c++) {
+            logPriors[c] = Math.log((double) documentCounts[c] / documentCount);
+            logDenominators[c] = Math.log(totals[c] + ALPHA * vocabularySize);
+        }
+    }
+
+    int categoryCount() {
+        return categoryIds.length;
+    }
+
+    int getCategoryId(int category) {
+        return categoryIds[category];
+    }
+
+    /**
+     * Name from legal_categories, or null if the category is not listed there
+     */
+    String getCategoryName(int category) {
+        return categoryNames[category];
+    }
+
+    /**
+     * Posterior probability of every category given the query's known terms
+     * Corrected terms count as a fraction of an occurrence, by their weight.
+     * Indexed like getCategoryId, in the first categoryCount() cells of a
+     * buffer of the scratch that the next prediction overwrites.
+     */
+    double[] predict(QueryScratch scratch) {
+        int categoryCount = categoryIds.length;
+        double[] scores = scratch.posteriors(categoryCount);
+        Arrays.fill(scores, 0, categoryCount, 0.0);
+
+        int[] terms = scratch.terms();
+        double known = 0.0;
+        for (int t = 0; t < scratch.termCount(); t++) {
+            if (terms[t] >= termCount) {
+                continue;
+            }
+            double weight = scratch.termWeight(t);
+            known += weight;
+            int row = terms[t] * categoryCount;
+            for (int c = 0; c < categoryCount; c++) {
+                scores[c] += weight * logCounts[row + c];
+            }
+        }
+        for (int c = 0; c < categoryCount; c++) {
+            scores[c] += logPriors[c] - known * logDenominators[c];
+        }
+
+        // Softmax relative to the best score to stay in floating point range
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < categoryCount; c++) {
+            max = Math.max(max, scores[c]);
+        }
+        double sum = 0.0;
+        for (int c = 0; c < categoryCount; c++) {
+            scores[c] = Math.exp(scores[c] - max);
+            sum += scores[c];
+        }
+        for (int c = 0; c < categoryCount; c++) {
+            scores[c] /= sum;
+        }
+        return scores;
+    }
+
+    /**
+     * Index of the most probable category, or -1 if none reaches minProbability
+     * Queries without any known term are never classified.
+     */
+    int classify(QueryScratch scratch, double minProbability) {
+        if (scratch.termCount() == 0 || categoryIds.length == 0) {
+            return -1;
+        }
+        double[] posteriors = predict(scratch);
+        int best = 0;
+        for (int c = 1; c < categoryIds.length; c++) {
+            if (posteriors[c] > posteriors[best]) {
+                best = c;
+            }
+        }
+        return posteriors[best] >= minProbability ? best : -1;
+    }
+
+    /**
+     * Write the counts and their logs; category names are looked up again on read
+     */
+    void write(IndexOutput out) throws IOException {
+        out.writeInt(termCount);
+        out.writeIntArray(categoryIds);
+        out.writeIntArray(documentCounts);
+        out.writeIntArray(termCounts);
+        out.writeFloatArray(logCounts);
+    }
+
+    static CategoryClassifier read(IndexInput in, Map<Integer, String> categoryNames) throws IOException {
+        int termCount = in.readInt();
+        int[] categoryIds = in.readIntArray();
+        return new CategoryClassifier(categoryIds, namesOf(categoryIds, categoryNames), in.readIntArray(),
+            in.readIntArray(), in.readFloatArray(), termCount);
+    }
+
+    /**
+     * Train on the term counts of every entry, grouped by category_id
+     * Counts are read from the BM25 postings, which hold each entry's
+     * question, keywords and answer terms including repeats.
+     *
+     * @param categoryNames names from legal_categories by category_id
+     */
+    static CategoryClassifier train(Bm25Index bm25Index, List<CompiledQA> entries, int termCount,
+                                    Map<Integer, String> categoryNames) {
+        // Categories are numbered in order of first appearance
+        List<Integer> ids = new ArrayList<>();
+        int[] docCategories = new int[entries.size()];
+        for (int doc = 0; doc < entries.size(); doc++) {
+            int categoryId = entries.get(doc).getQA().getCategoryId();
+            int category = ids.indexOf(categoryId);
+            if (category < 0) {
+                category = ids.size();
+                ids.add(categoryId);
+            }
+            docCategories[doc] = category;
+        }
+        int categoryCount = ids.size();
+
+        int[] documentCounts = new int[categoryCount];
+        for (int category : docCategories) {
+            documentCounts[category]++;
+        }
+        int[] termCounts = new int[termCount * categoryCount];
+        for (int term = 0; term < termCount; term++) {
+            int[] docs = bm25Index.postings(term);
+            for (int i = 0; i < docs.length; i++) {
+                termCounts[term * categoryCount + docCategories[docs[i]]] += bm25Index.totalFrequency(term, i);
+            }
+        }
+
+        int[] categoryIds = ids.stream().mapToInt(Integer::intValue).toArray();
+        float[] logCounts = new float[termCounts.length];
+        for (int cell = 0; cell < termCounts.length; cell++) {
+            logCounts[cell] = (float) Math.log(termCounts[cell] + ALPHA);
+        }
+        return new CategoryClassifier(categoryIds, namesOf(categoryIds, categoryNames), documentCounts, termCounts,
+            logCounts, termCount);
+    }
+
+    /**
+     * The classifier trained on this one's entries with the given changes
+     * Only the counts of the changed entries' terms are taken again; a full
+     * training gives the same result, as its categories are also in ascending
+     * category_id.
+     *
+     * @param termCount size of the dictionary, which only ever grows
+     */
+    CategoryClassifier apply(Changes changes, int termCount, Map<Integer, String> categoryNames) {
+        // Categories left with entries, ascending
+        TreeMap<Integer, Integer> documentsById = new TreeMap<>();
+        for (int c = 0; c < categoryIds.length; c++) {
+            documentsById.put(categoryIds[c], documentCounts[c]);
+        }
+        changes.documents.forEach((id, delta) -> documentsById.merge(id, delta, Integer::sum));
+        documentsById.values().removeIf(count -> count <= 0);
+
+        int categoryCount = documentsById.size();
+        int[] ids = new int[categoryCount];
+        int[] documents = new int[categoryCount];
+        int c = 0;
+        for (Map.Entry<Integer, Integer> entry : documentsById.entrySet()) {
+            ids[c] = entry.getKey();
+            documents[c++] = entry.getValue();
+        }
+
+        int[] counts;
+        float[] logs;
+        float emptyLog = (float) Math.log(ALPHA);
+        if (Arrays.equals(ids, categoryIds)) {
+            counts = Arrays.copyOf(termCounts, termCount * categoryCount);
+            logs = Arrays.copyOf(logCounts, termCount * categoryCount);
+            Arrays.fill(logs, logCounts.length, logs.length, emptyLog);
+        } else {
+            counts = new int[termCount * categoryCount];
+            logs = new float[termCount * categoryCount];
+            Arrays.fill(logs, emptyLog);
+            for (c = 0; c < categoryCount; c++) {
+                int old = indexOf(categoryIds, ids[c]);
+                if (old < 0) {
+                    continue;
+                }
+                for (int term = 0; term < this.termCount; term++) {
+                    counts[term * categoryCount + c] = termCounts[term * categoryIds.length + old];
+                    logs[term * categoryCount + c] = logCounts[term * categoryIds.length + old];
+                }
+            }
+        }
+
+        for (Map.Entry<Long, Integer> entry : changes.termCounts.entrySet()) {
+            int term = (int) (entry.getKey() >>> 32);
+            c = indexOf(ids, entry.getKey().intValue());
+            if (c < 0) {
+                continue; // category left without entries
+            }
+            int cell = term * categoryCount + c;
+            counts[cell] += entry.getValue();
+            logs[cell] = (float) Math.log(counts[cell] + ALPHA);
+        }
+        return new CategoryClassifier(ids, namesOf(ids, categoryNames), documents, counts, logs, termCount);
+    }
+
+    private static String[] namesOf(int[] categoryIds, Map<Integer, String> categoryNames) {
+        String[] names = new String[categoryIds.length];
+        for (int c = 0; c < categoryIds.length; c++) {
+            names[c] = categoryNames.get(categoryIds[c]);
+        }
+        return names;
+    }
+
+    private static int indexOf(int[] ids, int id) {
+        for (int c = 0; c < ids.length; c++) {
+            if (ids[c] == id) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Entries added to and removed from a classifier's training data
+     */
+    static final class Changes {
+        // Documents added minus removed, by category_id
+        private final Map<Integer, Integer> documents = new HashMap<>();
+        // Occurrences added minus removed, by (term << 32 | category_id)
+        private final Map<Long, Integer> termCounts = new HashMap<>();
+
+        /**
+         * Count an entry from its fields' term IDs including repeats
+         */
+        void add(int categoryId, int[]... fields) {
+            change(categoryId, 1, fields);
+        }
+
+        void remove(int categoryId, int[]... fields) {
+            change(categoryId, -1, fields);
+        }
+
+        private void change(int categoryId, int sign, int[][] fields) {
+            documents.merge(categoryId, sign, Integer::sum);
+            for (int[] terms : fields) {
+                for (int term : terms) {
+                    termCounts.merge(((long) term << 32) | (categoryId & 0xFFFFFFFFL), sign, Integer::sum);
+                }
+            }
+        }
+    }
+}
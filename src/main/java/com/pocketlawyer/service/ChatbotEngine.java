@@ -1,12 +1,27 @@
 package com.pocketlawyer.service;
 
+import com.pocketlawyer.config.DatabaseConfig;
+import com.pocketlawyer.dao.CategoryDAO;
 import com.pocketlawyer.dao.LegalQADAO;
+import com.pocketlawyer.model.LegalCategory;
 import com.pocketlawyer.model.LegalQA;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Paths;
+import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * AI Chatbot Engine with intelligent keyword matching and intent recognition
@@ -16,58 +31,430 @@ public class ChatbotEngine {
     
     private static final Logger logger = LoggerFactory.getLogger(ChatbotEngine.class);
     private final LegalQADAO qaDAO;
-    private List<LegalQA> knowledgeBase;
-    
-    // Common stop words to ignore during matching
-    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
-        "a", "an", "the", "is", "are", "was", "were", "be", "been", "being",
-        "have", "has", "had", "do", "does", "did", "will", "would", "should",
-        "could", "may", "might", "can", "i", "you", "he", "she", "it", "we",
-        "they", "what", "which", "who", "when", "where", "why", "how", "my",
-        "your", "his", "her", "its", "our", "their", "this", "that", "these",
-        "those", "am", "to", "of", "in", "for", "on", "with", "as", "by", "at"
-    ));
+    private final CategoryDAO categoryDAO;
+    private final KnowledgeIndexFile indexFile = new KnowledgeIndexFile(Paths.get(DatabaseConfig.KNOWLEDGE_INDEX_FILE));
+    private final AtomicReference<KnowledgeSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<SnapshotStats>> pendingReload = new AtomicReference<>();
+    private final AtomicLong snapshotVersion = new AtomicLong();
+    // Runs every build, refresh and index file save, one at a time
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "knowledge-base-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> refreshTask;
+    private volatile ScoringMode scoringMode = ScoringMode.JACCARD;
+    
+    // Minimum score for a match in JACCARD and BM25 mode
+    private static final double THRESHOLD = 0.3;
+    private static final double BM25_THRESHOLD = 0.25;
+    
+    // Minimum classifier probability for naming a category in the fallback response
+    private static final double CATEGORY_HINT_PROBABILITY = 0.4;
+    
+    // Queries are routed to their predicted categories once the knowledge base has this many entries
+    private static final int ROUTING_MIN_ENTRIES = 10000;
+    // Minimum probability for also searching the second most likely category
+    private static final double SECOND_PARTITION_PROBABILITY = 0.2;
+    
+    // Maximum number of distinct keyword sets kept in the response cache
+    private static final int RESPONSE_CACHE_SIZE = 1000;
+    
+    // Number of queries pulled per parallel chunk by the streaming batch API
+    private static final int BATCH_CHUNK_SIZE = 4096;
+    
+    // Reusable per-thread buffers so steady-state scoring allocates nothing
+    private static final ThreadLocal<QueryScratch> QUERY_SCRATCH = ThreadLocal.withInitial(QueryScratch::new);
     
     public ChatbotEngine() {
         this.qaDAO = new LegalQADAO();
+        this.categoryDAO = new CategoryDAO();
         loadKnowledgeBase();
+        setRefreshInterval(DatabaseConfig.KNOWLEDGE_REFRESH_SECONDS);
+    }
+    
+    /**
+     * Load knowledge base from database and publish it as a new snapshot
+     * Queries keep using the previous snapshot until the new one is complete.
+     */
+    private SnapshotStats loadKnowledgeBase() {
+        long start = System.nanoTime();
+        Map<Integer, String> categoryNames = loadCategoryNames();
+        
+        // Reuse the index file while legal_qa is unchanged since it was written
+        String fingerprint = qaDAO.getContentFingerprint();
+        KnowledgeIndex index = fingerprint == null ? null : indexFile.load(fingerprint, categoryNames);
+        boolean fromFile = index != null;
+        boolean complete = true;
+        if (!fromFile) {
+            // Compile rows as they stream in rather than holding the whole table first
+            KnowledgeIndexBuilder.Streaming streaming = new KnowledgeIndexBuilder.Streaming();
+            try {
+                complete = qaDAO.forEachQA(streaming);
+                index = streaming.build(categoryNames);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Q&A pairs did not stream in entry order ({}), loading and sorting them instead",
+                            e.getMessage());
+                index = KnowledgeIndexBuilder.build(qaDAO.getAllQA(), categoryNames);
+            }
+        }
+        KnowledgeSnapshot loaded = publish(index, start);
+        logger.info("Loaded {} Q&A pairs into knowledge base snapshot {} from {} ({} distinct terms, "
+                    + "{} KB of compressed texts, {} ms)",
+                    index.size(), loaded.getVersion(), fromFile ? "index file" : "database",
+                    index.getDictionary().size(), index.getAnswers().compressedBytes() / 1024,
+                    loaded.getBuildMillis());
+        
+        // An index of a partly read table must not be reused as if it were current
+        if (!fromFile && complete) {
+            saveIndexFile(fingerprint, index);
+        }
+        return toStats(loaded);
     }
     
     /**
-     * Load knowledge base from database
+     * Apply rows changed or deleted since the current snapshot was built
+     * Rows updated at or after the snapshot's latest modification time, less a
+     * margin for transactions that commit late, are fetched and compared with
+     * the indexed entries; the table's qa_ids are then reconciled with the
+     * index. Changes are merged into a copy of the current index, so unchanged
+     * entries are not re-read or re-tokenized, and published as a new snapshot.
      */
-    private void loadKnowledgeBase() {
-        knowledgeBase = qaDAO.getAllQA();
-        logger.info("Loaded {} Q&A pairs into knowledge base", knowledgeBase.size());
+    private SnapshotStats applyChanges() {
+        long start = System.nanoTime();
+        KnowledgeSnapshot current = snapshot.get();
+        KnowledgeIndex index = current.getIndex();
+        
+        String fingerprint = qaDAO.getContentFingerprint();
+        long commitLag = TimeUnit.SECONDS.toMillis(DatabaseConfig.KNOWLEDGE_REFRESH_COMMIT_LAG_SECONDS);
+        List<LegalQA> rows = qaDAO.getQAUpdatedSince(new Timestamp(Math.max(0, index.getLastModified() - commitLag)));
+        if (rows == null) {
+            return toStats(current);
+        }
+        List<LegalQA> changed = new ArrayList<>();
+        for (LegalQA row : rows) {
+            int doc = index.findEntry(row.getQaId());
+            if (doc < 0 || !KnowledgeIndexBuilder.isUnchanged(index, doc, row)) {
+                changed.add(row);
+            }
+        }
+        int[] removedIds = reconcileIds(index, rows, changed);
+        if (changed.isEmpty() && removedIds.length == 0) {
+            return toStats(current);
+        }
+        
+        KnowledgeIndex patched = KnowledgeIndexBuilder.patch(index, changed, removedIds, loadCategoryNames());
+        KnowledgeSnapshot refreshed = publish(patched, start);
+        logger.info("Refreshed knowledge base snapshot {}: {} Q&A pairs changed, {} removed, {} in total ({} ms)",
+                    refreshed.getVersion(), changed.size(), removedIds.length, patched.size(),
+                    refreshed.getBuildMillis());
+        
+        saveIndexFile(fingerprint, patched);
+        return toStats(refreshed);
+    }
+    
+    /**
+     * qa_ids of indexed entries no longer in legal_qa, in ascending order
+     * The table's row count and qa_id sum are checked against those of the
+     * indexed and fetched rows; only when either differs is the full ID list
+     * read and compared both ways. Rows in neither, such as a late commit with
+     * an updated_at below the fetch margin, are read by ID and added to changed,
+     * so a deletion is found even when such a row keeps the count unchanged.
+     */
+    private int[] reconcileIds(KnowledgeIndex index, List<LegalQA> rows, List<LegalQA> changed) {
+        long[] totals = qaDAO.getQAIdTotals();
+        if (totals == null) {
+            return new int[0];
+        }
+        long expectedCount = index.size();
+        long expectedSum = 0;
+        for (CompiledQA entry : index.getEntries()) {
+            expectedSum += entry.getQA().getQaId();
+        }
+        for (LegalQA row : rows) {
+            if (index.findEntry(row.getQaId()) < 0) {
+                expectedCount++;
+                expectedSum += row.getQaId();
+            }
+        }
+        int[] ids = totals[0] == expectedCount && totals[1] == expectedSum ? null : qaDAO.getAllQAIds();
+        if (ids == null) {
+            return new int[0];
+        }
+        
+        int[] fetchedIds = rows.stream().mapToInt(LegalQA::getQaId).sorted().toArray();
+        int[] missingIds = Arrays.stream(ids)
+                .filter(qaId -> index.findEntry(qaId) < 0 && Arrays.binarySearch(fetchedIds, qaId) < 0)
+                .toArray();
+        if (missingIds.length > 0) {
+            List<LegalQA> missing = qaDAO.getQAByIds(missingIds);
+            if (missing != null) {
+                changed.addAll(missing);
+            }
+        }
+        return index.getEntries().stream()
+                .mapToInt(entry -> entry.getQA().getQaId())
+                .filter(qaId -> Arrays.binarySearch(ids, qaId) < 0)
+                .sorted()
+                .toArray();
+    }
+    
+    private KnowledgeSnapshot publish(KnowledgeIndex index, long startNanos) {
+        int[] representatives = DatabaseConfig.COLLAPSE_NEAR_DUPLICATES ? NearDuplicateDetector.collapse(index) : null;
+        long buildMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        KnowledgeSnapshot published = new KnowledgeSnapshot(snapshotVersion.incrementAndGet(), index,
+            new ResponseCache(RESPONSE_CACHE_SIZE), representatives, buildMillis);
+        snapshot.set(published);
+        return published;
+    }
+    
+    private void saveIndexFile(String fingerprint, KnowledgeIndex index) {
+        if (fingerprint != null) {
+            reloadExecutor.execute(() -> indexFile.save(fingerprint, index));
+        }
+    }
+    
+    private static SnapshotStats toStats(KnowledgeSnapshot current) {
+        KnowledgeIndex index = current.getIndex();
+        return new SnapshotStats(current.getVersion(), index.size(), index.getDictionary().size(),
+            current.getBuildMillis(), current.getPublishedAt());
+    }
+    
+    private Map<Integer, String> loadCategoryNames() {
+        Map<Integer, String> names = new HashMap<>();
+        for (LegalCategory category : categoryDAO.getAllCategories()) {
+            names.put(category.getCategoryId(), category.getCategoryName());
+        }
+        return names;
+    }
+    
+    /**
+     * Select the ranking strategy used by getResponse
+     */
+    public void setScoringMode(ScoringMode scoringMode) {
+        this.scoringMode = Objects.requireNonNull(scoringMode);
+    }
+    
+    public ScoringMode getScoringMode() {
+        return scoringMode;
     }
     
     /**
      * Reload knowledge base (useful after updates)
+     * The new snapshot is built on a background thread while queries continue
+     * against the current one. Calls made while a reload is still queued share it.
      */
-    public void reloadKnowledgeBase() {
-        loadKnowledgeBase();
+    public CompletableFuture<SnapshotStats> reloadKnowledgeBase() {
+        while (true) {
+            CompletableFuture<SnapshotStats> pending = pendingReload.get();
+            if (pending != null) {
+                return pending;
+            }
+            CompletableFuture<SnapshotStats> reload = new CompletableFuture<>();
+            if (pendingReload.compareAndSet(null, reload)) {
+                reloadExecutor.execute(() -> {
+                    // Once the build starts, later calls must queue another one to see newer data
+                    pendingReload.compareAndSet(reload, null);
+                    try {
+                        reload.complete(loadKnowledgeBase());
+                    } catch (RuntimeException e) {
+                        logger.error("Error reloading knowledge base", e);
+                        reload.completeExceptionally(e);
+                    }
+                });
+                return reload;
+            }
+        }
+    }
+    
+    /**
+     * Apply rows changed or deleted in legal_qa since the last load or refresh
+     * Runs on the same background thread as reloads, so it never overlaps one.
+     * Completes with the current snapshot's stats when nothing changed.
+     */
+    public CompletableFuture<SnapshotStats> refreshKnowledgeBase() {
+        return CompletableFuture.supplyAsync(this::applyChanges, reloadExecutor);
+    }
+    
+    /**
+     * Insert a Q&A pair and publish it to the live knowledge base
+     *
+     * @see #addQAs(List)
+     */
+    public CompletableFuture<SnapshotStats> addQA(LegalQA qa) {
+        return addQAs(Collections.singletonList(qa));
+    }
+    
+    /**
+     * Insert Q&A pairs in one batch and publish them without a full rebuild
+     * The rows are inserted right away and each pair gets its generated qa_id
+     * and timestamps; their postings are then merged into a copy of the current
+     * index on the background thread. The future completes with the stats of the snapshot
+     * that answers with the new pairs, or exceptionally if the insert failed.
+     */
+    public CompletableFuture<SnapshotStats> addQAs(List<LegalQA> entries) {
+        if (qaDAO.addQAs(entries) == null) {
+            CompletableFuture<SnapshotStats> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("Could not insert " + entries.size() + " Q&A pairs"));
+            return failed;
+        }
+        List<LegalQA> inserted = new ArrayList<>(entries);
+        return CompletableFuture.supplyAsync(() -> publishInserted(inserted), reloadExecutor);
+    }
+    
+    private SnapshotStats publishInserted(List<LegalQA> inserted) {
+        long start = System.nanoTime();
+        KnowledgeSnapshot current = snapshot.get();
+        KnowledgeIndex index = current.getIndex();
+        
+        // A refresh or reload that ran since the insert may have picked the rows up already
+        List<LegalQA> missing = inserted.stream()
+                .filter(qa -> index.findEntry(qa.getQaId()) < 0)
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return toStats(current);
+        }
+        
+        KnowledgeIndex patched = KnowledgeIndexBuilder.patch(index, missing, new int[0], loadCategoryNames());
+        KnowledgeSnapshot published = publish(patched, start);
+        logger.info("Published {} new Q&A pairs in knowledge base snapshot {} ({} ms)",
+                    missing.size(), published.getVersion(), published.getBuildMillis());
+        return toStats(published);
+    }
+    
+    /**
+     * Refresh the knowledge base every given number of seconds, or stop when 0
+     * Replaces any earlier schedule.
+     */
+    public synchronized void setRefreshInterval(long seconds) {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
+        if (seconds > 0) {
+            refreshTask = reloadExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    applyChanges();
+                } catch (RuntimeException e) {
+                    // A scheduled task that throws is never run again
+                    logger.error("Error refreshing knowledge base", e);
+                }
+            }, seconds, seconds, TimeUnit.SECONDS);
+        }
+    }
+    
+    /**
+     * Get version and build metrics of the snapshot currently serving queries
+     */
+    public SnapshotStats getSnapshotStats() {
+        return toStats(snapshot.get());
+    }
+    
+    /**
+     * Report the clusters of near-duplicate Q&A pairs in the current knowledge base
+     * Compares the indexed terms of question and keywords, so it reads nothing
+     * from the database.
+     */
+    public List<DuplicateCluster> findNearDuplicates() {
+        return NearDuplicateDetector.findClusters(snapshot.get().getIndex());
     }
     
     /**
      * Get response for user query using AI matching
      */
     public String getResponse(String userQuery) {
+        return getResponse(snapshot.get(), scoringMode, userQuery);
+    }
+    
+    /**
+     * Answer many queries in parallel, returning results in input order
+     * All queries are answered against the same knowledge base snapshot, even if
+     * it is reloaded while the batch runs.
+     */
+    public List<QueryResult> getResponses(List<String> queries) {
+        KnowledgeSnapshot current = snapshot.get();
+        ScoringMode mode = scoringMode;
+        
+        QueryResult[] results = new QueryResult[queries.size()];
+        IntStream.range(0, results.length).parallel().forEach(i -> {
+            long start = System.nanoTime();
+            String response = getResponse(current, mode, queries.get(i));
+            results[i] = new QueryResult(queries.get(i), response, System.nanoTime() - start);
+        });
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * Streaming variant of getResponses for inputs too large to hold in memory
+     * Queries are pulled in chunks, each chunk is answered in parallel, and
+     * results are handed to the consumer in input order on the calling thread.
+     */
+    public void getResponses(Iterator<String> queries, Consumer<? super QueryResult> consumer) {
+        List<String> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+        while (queries.hasNext()) {
+            chunk.add(queries.next());
+            if (chunk.size() == BATCH_CHUNK_SIZE || !queries.hasNext()) {
+                getResponses(chunk).forEach(consumer);
+                chunk.clear();
+            }
+        }
+    }
+    
+    private String getResponse(KnowledgeSnapshot current, ScoringMode mode, String userQuery) {
         if (userQuery == null || userQuery.trim().isEmpty()) {
             return "Please ask me a legal question, and I'll do my best to help you.";
         }
         
-        // Normalize query
-        String normalizedQuery = normalizeText(userQuery);
-        
-        // Extract keywords from query
-        Set<String> queryKeywords = extractKeywords(normalizedQuery);
+        // Tokenize query straight into term IDs, correcting misspelled terms
+        QueryScratch scratch = QUERY_SCRATCH.get();
+        scratch.parseQuery(userQuery, current.getIndex());
         
-        if (queryKeywords.isEmpty()) {
+        if (scratch.termCount() + scratch.unknownTermCount() == 0) {
             return "I didn't quite understand that. Could you please rephrase your question?";
         }
         
+        // Same keyword set, phrases and scoring mode means the same answer
+        current.getIndex().getPhraseIndex().findPhrases(scratch);
+        String cacheKey = scratch.canonicalKey(mode, current.getIndex().getDictionary());
+        return current.getResponseCache().get(cacheKey, () -> answerQuery(current, mode, userQuery, scratch));
+    }
+    
+    /**
+     * Get cache hit/miss counters for the current knowledge base snapshot
+     */
+    public CacheStats getCacheStats() {
+        return snapshot.get().getResponseCache().getStats();
+    }
+    
+    /**
+     * Get routing counters and per-partition search latency for the current snapshot
+     */
+    public RoutingStats getRoutingStats() {
+        KnowledgeSnapshot current = snapshot.get();
+        return current.getRoutingMetrics().getStats(current.getIndex());
+    }
+    
+    /**
+     * Show which category partitions a query is routed to and how long each took
+     * The query is searched like a getResponse cache miss.
+     */
+    public RoutingDecision explainRouting(String userQuery) {
+        KnowledgeSnapshot current = snapshot.get();
+        QueryScratch scratch = QUERY_SCRATCH.get();
+        scratch.parseQuery(userQuery, current.getIndex());
+        return routingDecision(current, scratch, search(current, scoringMode, scratch));
+    }
+    
+    /**
+     * Score a parsed query and turn the best match or the fallback into a response
+     */
+    private String answerQuery(KnowledgeSnapshot current, ScoringMode mode, String userQuery, QueryScratch scratch) {
         // Find best matching Q&A
-        LegalQA bestMatch = findBestMatch(normalizedQuery, queryKeywords);
+        int best = search(current, mode, scratch);
+        LegalQA bestMatch = best < 0 ? null : matchOf(current, scratch, best);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Routed query '{}': {}", userQuery, routingDecision(current, scratch, best));
+        }
         
         if (bestMatch != null) {
             logger.info("Matched query '{}' to Q&A: {}", userQuery, bestMatch.getQuestion());
@@ -75,113 +462,340 @@ public class ChatbotEngine {
         }
         
         // No match found - provide helpful fallback
-        return getFallbackResponse(queryKeywords);
+        return getFallbackResponse(identifyCategory(current.getIndex(), scratch));
+    }
+    
+    /**
+     * Find best matching Q&A with the selected scoring mode
+     * Large knowledge bases are searched in the query's predicted categories
+     * first and widened to every category only when nothing there reaches the
+     * threshold. Only entries sharing at least one term with the query are
+     * scored. How the search was routed is left in the scratch.
+     *
+     * @return slot of the best candidate reaching the threshold, or -1
+     */
+    private int search(KnowledgeSnapshot snapshot, ScoringMode mode, QueryScratch scratch) {
+        KnowledgeIndex current = snapshot.getIndex();
+        RoutingMetrics metrics = snapshot.getRoutingMetrics();
+        double threshold = mode == ScoringMode.BM25 ? BM25_THRESHOLD : THRESHOLD;
+        
+        scratch.resetRouting(current.partitionCount());
+        boolean routed = route(current, scratch);
+        if (!routed) {
+            scoreCandidates(current, mode, scratch);
+        } else {
+            scratch.resetCandidates(current.size());
+            for (int route = 0; route < scratch.routedCount(); route++) {
+                searchPartition(current, mode, scratch, current.findPartition(scratch.routedCategoryId(route)),
+                    metrics);
+            }
+            // Widening only scores the partitions not searched yet
+            scratch.setWidened(bestCandidate(current, scratch, threshold) < 0);
+            for (int partition = 0; scratch.isWidened() && partition < current.partitionCount(); partition++) {
+                if (!scratch.isRouted(partition)) {
+                    searchPartition(current, mode, scratch, partition, metrics);
+                }
+            }
+        }
+        metrics.recordQuery(routed, scratch.isWidened());
+        
+        int best = bestCandidate(current, scratch, threshold);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Best {} match score: {}", mode, best < 0 ? 0.0 : scratch.score(best));
+        }
+        return best;
+    }
+    
+    /**
+     * Describe the search last run with the scratch, for explainRouting and debug logs
+     */
+    private static RoutingDecision routingDecision(KnowledgeSnapshot snapshot, QueryScratch scratch, int best) {
+        List<Integer> routedCategoryIds = new ArrayList<>(scratch.routedCount());
+        List<Double> routedProbabilities = new ArrayList<>(scratch.routedCount());
+        for (int route = 0; route < scratch.routedCount(); route++) {
+            routedCategoryIds.add(scratch.routedCategoryId(route));
+            routedProbabilities.add(scratch.routedProbability(route));
+        }
+        Map<Integer, Long> partitionNanos = new LinkedHashMap<>();
+        for (int search = 0; search < scratch.searchedCount(); search++) {
+            partitionNanos.put(scratch.searchedCategoryId(search), scratch.searchNanos(search));
+        }
+        return new RoutingDecision(routedCategoryIds, routedProbabilities, scratch.isWidened(), partitionNanos,
+            best < 0 ? null : matchOf(snapshot, scratch, best), best < 0 ? 0.0 : scratch.score(best));
+    }
+    
+    /**
+     * Pair answered for a scored candidate, the representative of its near-duplicate cluster
+     */
+    private static LegalQA matchOf(KnowledgeSnapshot snapshot, QueryScratch scratch, int slot) {
+        return snapshot.getIndex().getQA(snapshot.representativeOf(scratch.candidate(slot)));
     }
     
     /**
-     * Find best matching Q&A using hybrid scoring
+     * Route the search to the partitions of the one or two most probable categories
+     *
+     * @return false if the query should search every partition
      */
-    private LegalQA findBestMatch(String query, Set<String> queryKeywords) {
+    private boolean route(KnowledgeIndex current, QueryScratch scratch) {
+        if (current.size() < ROUTING_MIN_ENTRIES || current.partitionCount() < 2 || scratch.termCount() == 0) {
+            return false;
+        }
+        
+        CategoryClassifier classifier = current.getClassifier();
+        double[] posteriors = classifier.predict(scratch);
+        int first = -1;
+        int second = -1;
+        for (int c = 0; c < classifier.categoryCount(); c++) {
+            if (first < 0 || posteriors[c] > posteriors[first]) {
+                second = first;
+                first = c;
+            } else if (second < 0 || posteriors[c] > posteriors[second]) {
+                second = c;
+            }
+        }
+        
+        for (int rank = 0; rank < 2; rank++) {
+            int c = rank == 0 ? first : second;
+            if (c < 0 || (rank == 1 && posteriors[c] < SECOND_PARTITION_PROBABILITY)) {
+                continue;
+            }
+            int partition = current.findPartition(classifier.getCategoryId(c));
+            if (partition >= 0) {
+                scratch.addRoute(classifier.getCategoryId(c), posteriors[c], partition);
+            }
+        }
+        return scratch.routedCount() > 0;
+    }
+    
+    private void searchPartition(KnowledgeIndex current, ScoringMode mode, QueryScratch scratch, int partition,
+                                 RoutingMetrics metrics) {
+        long start = System.nanoTime();
+        scoreCandidates(current, mode, scratch, current.getPartitionStart(partition), current.getPartitionEnd(partition));
+        long elapsed = System.nanoTime() - start;
+        metrics.recordSearch(partition, elapsed);
+        scratch.recordSearch(current.getPartitionCategoryId(partition), elapsed);
+    }
+    
+    /**
+     * Slot of the best scored candidate reaching the threshold, or -1
+     */
+    private static int bestCandidate(KnowledgeIndex current, QueryScratch scratch, double threshold) {
         double bestScore = 0.0;
-        LegalQA bestMatch = null;
-        final double THRESHOLD = 0.3; // Minimum similarity threshold
+        int bestSlot = -1;
         
-        for (LegalQA qa : knowledgeBase) {
-            double score = calculateSimilarityScore(query, queryKeywords, qa);
+        for (int slot = 0; slot < scratch.candidateCount(); slot++) {
+            int doc = scratch.candidate(slot);
+            double score = scratch.score(slot);
             
-            if (score > bestScore && score >= THRESHOLD) {
+            // Ties are settled by entry, whichever order partitions were searched in
+            if (score >= threshold && (score > bestScore ||
+                    (score == bestScore && compareTied(current, doc, scratch.candidate(bestSlot)) < 0))) {
                 bestScore = score;
-                bestMatch = qa;
+                bestSlot = slot;
+            }
+        }
+        return bestSlot;
+    }
+    
+    /**
+     * Order of two equally scored entries: higher priority first, then lower qa_id
+     */
+    private static int compareTied(KnowledgeIndex current, int doc, int otherDoc) {
+        LegalQA qa = current.getEntry(doc).getQA();
+        LegalQA other = current.getEntry(otherDoc).getQA();
+        int byPriority = Integer.compare(other.getPriority(), qa.getPriority());
+        return byPriority != 0 ? byPriority : Integer.compare(qa.getQaId(), other.getQaId());
+    }
+    
+    /**
+     * Get the k best matching Q&A pairs with their per-factor scores, best first
+     * Unlike getResponse no minimum score applies, so weaker matches can be shown
+     * as related questions. Uses a bounded min-heap instead of sorting all candidates.
+     */
+    public List<ScoredMatch> getTopMatches(String userQuery, int k) {
+        if (userQuery == null || k <= 0) {
+            return new ArrayList<>();
+        }
+        
+        KnowledgeSnapshot currentSnapshot = snapshot.get();
+        KnowledgeIndex current = currentSnapshot.getIndex();
+        ScoringMode mode = scoringMode;
+        QueryScratch scratch = QUERY_SCRATCH.get();
+        scratch.parseQuery(userQuery, current);
+        scoreCandidates(current, mode, scratch);
+        
+        // Heap head is the weakest kept match: lowest score, then lowest priority and highest qa_id
+        Comparator<Integer> weakestFirst = Comparator
+            .comparingDouble((Integer slot) -> scratch.score(slot))
+            .thenComparing((slot, other) -> compareTied(current, scratch.candidate(other), scratch.candidate(slot)));
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, weakestFirst);
+        
+        // Collapsed near-duplicates are listed once, as their representative with the best
+        // score of any entry in the cluster, the same way getResponse answers with them
+        Map<Integer, Integer> bestSlotByRepresentative = new HashMap<>();
+        for (int slot = 0; slot < scratch.candidateCount(); slot++) {
+            if (scratch.score(slot) > 0.0) {
+                bestSlotByRepresentative.merge(currentSnapshot.representativeOf(scratch.candidate(slot)), slot,
+                    (kept, other) -> weakestFirst.compare(other, kept) > 0 ? other : kept);
+            }
+        }
+        
+        for (int slot : bestSlotByRepresentative.values()) {
+            if (heap.size() < k) {
+                heap.add(slot);
+            } else if (weakestFirst.compare(slot, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(slot);
+            }
+        }
+        
+        ScoredMatch[] ranked = new ScoredMatch[heap.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            int slot = heap.poll();
+            ranked[i] = explainMatch(current, mode, scratch, slot,
+                currentSnapshot.representativeOf(scratch.candidate(slot)));
+        }
+        return new ArrayList<>(Arrays.asList(ranked));
+    }
+    
+    /**
+     * Score every candidate sharing a term with the query into the scratch slots
+     */
+    private void scoreCandidates(KnowledgeIndex current, ScoringMode mode, QueryScratch scratch) {
+        scratch.resetCandidates(current.size());
+        scoreCandidates(current, mode, scratch, 0, current.size());
+    }
+    
+    /**
+     * Add the candidates among entries [fromDoc, toDoc) to the scratch slots with their scores
+     * Phrase hits are counted after the candidates are collected, in one pass
+     * over the query.
+     */
+    private void scoreCandidates(KnowledgeIndex current, ScoringMode mode, QueryScratch scratch,
+                                 int fromDoc, int toDoc) {
+        int firstSlot = scratch.candidateCount();
+        if (mode == ScoringMode.BM25) {
+            current.getBm25Index().score(scratch, fromDoc, toDoc);
+        } else {
+            current.getInvertedIndex().collectCandidates(scratch, fromDoc, toDoc);
+        }
+        current.getPhraseIndex().match(scratch, fromDoc, toDoc);
+        
+        for (int slot = firstSlot; slot < scratch.candidateCount(); slot++) {
+            CompiledQA entry = current.getEntry(scratch.candidate(slot));
+            double phraseScore = calculatePhraseScore(current, scratch, slot);
+            if (mode == ScoringMode.BM25) {
+                scratch.setScore(slot, calculateBm25Score(scratch.score(slot), phraseScore, entry));
+            } else {
+                scratch.setScore(slot, calculateSimilarityScore(scratch, phraseScore, entry));
             }
         }
+    }
+    
+    /**
+     * Recompute the individual factors of one scored candidate
+     *
+     * @param shownDoc entry whose pair is shown with the candidate's scores, such as its representative
+     */
+    private ScoredMatch explainMatch(KnowledgeIndex current, ScoringMode mode, QueryScratch scratch, int slot,
+                                     int shownDoc) {
+        int doc = scratch.candidate(slot);
+        CompiledQA entry = current.getEntry(doc);
+        double phraseScore = calculatePhraseScore(current, scratch, slot);
+        double priorityBoost = entry.getQA().getPriority() * 0.01;
         
-        logger.debug("Best match score: {}", bestScore);
-        return bestMatch;
+        if (mode == ScoringMode.BM25) {
+            double[] shares = current.getBm25Index().explain(scratch, doc);
+            return new ScoredMatch(current.getQA(shownDoc), scratch.score(slot),
+                shares[Bm25Index.KEYWORDS], shares[Bm25Index.QUESTION], shares[Bm25Index.ANSWER],
+                phraseScore, priorityBoost);
+        }
+        return new ScoredMatch(current.getQA(shownDoc), scratch.score(slot),
+            calculateJaccardSimilarity(scratch, entry.getKeywordTerms()),
+            calculateJaccardSimilarity(scratch, entry.getQuestionTerms()),
+            0.0, phraseScore, priorityBoost);
+    }
+    
+    /**
+     * Combine normalized BM25F relevance with the phrase bonus and priority
+     */
+    private double calculateBm25Score(double relevance, double phraseScore, CompiledQA entry) {
+        double priorityBoost = entry.getQA().getPriority() * 0.01;
+        return (relevance * 0.8) +
+               (phraseScore * 0.15) +
+               (priorityBoost * 0.05);
     }
     
     /**
      * Calculate similarity score between query and Q&A
-     * Uses multiple factors: keyword overlap, question similarity, priority
+     * Uses multiple factors: keyword overlap, question similarity, phrases, priority
      */
-    private double calculateSimilarityScore(String query, Set<String> queryKeywords, LegalQA qa) {
+    private double calculateSimilarityScore(QueryScratch queryTerms, double phraseScore, CompiledQA entry) {
         // Factor 1: Keyword overlap with stored keywords
-        Set<String> qaKeywords = extractKeywords(qa.getKeywords());
-        double keywordScore = calculateJaccardSimilarity(queryKeywords, qaKeywords);
+        double keywordScore = calculateJaccardSimilarity(queryTerms, entry.getKeywordTerms());
         
         // Factor 2: Question text similarity
-        Set<String> questionKeywords = extractKeywords(normalizeText(qa.getQuestion()));
-        double questionScore = calculateJaccardSimilarity(queryKeywords, questionKeywords);
+        double questionScore = calculateJaccardSimilarity(queryTerms, entry.getQuestionTerms());
         
-        // Factor 3: Direct substring matching (bonus for exact phrase matches)
-        double substringScore = 0.0;
-        String normalizedQuestion = normalizeText(qa.getQuestion());
-        if (normalizedQuestion.contains(query) || query.contains(normalizedQuestion)) {
-            substringScore = 0.3;
-        }
+        // Factor 3: Share of the entry's multi-word phrases found in the query
         
         // Factor 4: Priority boost (higher priority = slight boost)
-        double priorityBoost = qa.getPriority() * 0.01;
+        double priorityBoost = entry.getQA().getPriority() * 0.01;
         
         // Weighted combination
         double finalScore = (keywordScore * 0.4) + 
                            (questionScore * 0.4) + 
-                           (substringScore * 0.15) + 
+                           (phraseScore * 0.15) + 
                            (priorityBoost * 0.05);
         
         return finalScore;
     }
     
     /**
-     * Calculate Jaccard similarity between two sets
+     * Share of a candidate's phrases matched by the query
      */
-    private double calculateJaccardSimilarity(Set<String> set1, Set<String> set2) {
-        if (set1.isEmpty() && set2.isEmpty()) {
-            return 0.0;
-        }
-        
-        Set<String> intersection = new HashSet<>(set1);
-        intersection.retainAll(set2);
-        
-        Set<String> union = new HashSet<>(set1);
-        union.addAll(set2);
-        
-        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+    private double calculatePhraseScore(KnowledgeIndex current, QueryScratch scratch, int slot) {
+        return current.getPhraseIndex().phraseScore(scratch.candidate(slot), scratch.phraseHits(slot));
     }
     
     /**
-     * Extract meaningful keywords from text
+     * Calculate Jaccard similarity between the query terms and a sorted term ID set
+     * Unknown query terms never intersect but still count toward the union;
+     * corrected terms intersect at their reduced weight.
      */
-    private Set<String> extractKeywords(String text) {
-        if (text == null || text.isEmpty()) {
-            return new HashSet<>();
+    private double calculateJaccardSimilarity(QueryScratch queryTerms, int[] termIds) {
+        int querySize = queryTerms.termCount() + queryTerms.unknownTermCount();
+        if (querySize == 0 && termIds.length == 0) {
+            return 0.0;
         }
         
-        return Arrays.stream(text.toLowerCase().split("[\\s,;.!?]+"))
-                .filter(word -> word.length() > 2)
-                .filter(word -> !STOP_WORDS.contains(word))
-                .collect(Collectors.toSet());
-    }
-    
-    /**
-     * Normalize text for comparison
-     */
-    private String normalizeText(String text) {
-        if (text == null) {
-            return "";
+        // Merge walk over the two sorted ID arrays
+        int[] terms = queryTerms.terms();
+        int intersection = 0;
+        double matchedWeight = 0.0;
+        int i = 0;
+        int j = 0;
+        while (i < queryTerms.termCount() && j < termIds.length) {
+            if (terms[i] < termIds[j]) {
+                i++;
+            } else if (terms[i] > termIds[j]) {
+                j++;
+            } else {
+                intersection++;
+                matchedWeight += queryTerms.termWeight(i);
+                i++;
+                j++;
+            }
         }
-        return text.toLowerCase()
-                   .replaceAll("[^a-z0-9\\s]", " ")
-                   .replaceAll("\\s+", " ")
-                   .trim();
+        int union = querySize + termIds.length - intersection;
+        
+        return union == 0 ? 0.0 : matchedWeight / union;
     }
     
     /**
      * Provide fallback response when no match found
      */
-    private String getFallbackResponse(Set<String> keywords) {
-        // Try to identify category from keywords
-        String suggestedCategory = identifyCategory(keywords);
-        
+    private String getFallbackResponse(String suggestedCategory) {
         StringBuilder response = new StringBuilder();
         response.append("I don't have a specific answer for that question in my knowledge base. ");
         
@@ -202,46 +816,12 @@ public class ChatbotEngine {
     }
     
     /**
-     * Identify likely category from keywords
+     * Identify likely category of the parsed query with the trained classifier
      */
-    private String identifyCategory(Set<String> keywords) {
-        Map<String, Set<String>> categoryKeywords = new HashMap<>();
-        
-        categoryKeywords.put("Consumer Rights", new HashSet<>(Arrays.asList(
-            "product", "defective", "refund", "warranty", "shop", "purchase", "consumer", "seller"
-        )));
-        
-        categoryKeywords.put("Tenant Rights", new HashSet<>(Arrays.asList(
-            "rent", "landlord", "tenant", "lease", "deposit", "eviction", "property", "housing"
-        )));
-        
-        categoryKeywords.put("Employee Rights", new HashSet<>(Arrays.asList(
-            "employee", "employer", "salary", "wage", "job", "work", "office", "termination", "leave"
-        )));
-        
-        categoryKeywords.put("Women's Rights", new HashSet<>(Arrays.asList(
-            "women", "harassment", "domestic", "violence", "safety", "maternity", "discrimination"
-        )));
-        
-        categoryKeywords.put("Cyber Rights", new HashSet<>(Arrays.asList(
-            "cyber", "online", "hack", "password", "social", "media", "internet", "digital", "privacy"
-        )));
-        
-        // Find category with most keyword matches
-        String bestCategory = null;
-        int maxMatches = 0;
-        
-        for (Map.Entry<String, Set<String>> entry : categoryKeywords.entrySet()) {
-            Set<String> intersection = new HashSet<>(keywords);
-            intersection.retainAll(entry.getValue());
-            
-            if (intersection.size() > maxMatches) {
-                maxMatches = intersection.size();
-                bestCategory = entry.getKey();
-            }
-        }
-        
-        return maxMatches > 0 ? bestCategory : null;
+    private String identifyCategory(KnowledgeIndex current, QueryScratch scratch) {
+        CategoryClassifier classifier = current.getClassifier();
+        int category = classifier.classify(scratch, CATEGORY_HINT_PROBABILITY);
+        return category < 0 ? null : classifier.getCategoryName(category);
     }
     
     /**
@@ -259,16 +839,16 @@ public class ChatbotEngine {
      * Get random suggested questions
      */
     public List<String> getRandomSuggestions(int count) {
-        if (knowledgeBase.isEmpty()) {
+        KnowledgeIndex index = snapshot.get().getIndex();
+        if (index.size() == 0) {
             return new ArrayList<>();
         }
         
-        List<LegalQA> shuffled = new ArrayList<>(knowledgeBase);
-        Collections.shuffle(shuffled);
-        
-        return shuffled.stream()
-                .limit(count)
-                .map(LegalQA::getQuestion)
+        // Pick distinct positions instead of shuffling, so only the chosen questions are decompressed
+        return ThreadLocalRandom.current().ints(0, index.size())
+                .distinct()
+                .limit(Math.min(count, index.size()))
+                .mapToObj(index::getQuestion)
                 .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,41 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+/**
+ * Pre-tokenized, immutable form of a Q&A entry
+ * Built once per knowledge base load so that scoring never re-parses text.
+ * Keyword and question terms are sorted, de-duplicated term dictionary IDs.
+ * The Q&A holds every column except the question and answer, which live
+ * compressed in the index's AnswerStore.
+ */
+final class CompiledQA {
+
+    private final LegalQA qa;
+    private final int[] keywordTerms;
+    private final int[] questionTerms;
+
+    CompiledQA(LegalQA qa, int[] keywordTerms, int[] questionTerms) {
+        this.qa = qa;
+        this.keywordTerms = keywordTerms;
+        this.questionTerms = questionTerms;
+    }
+
+    LegalQA getQA() {
+        return qa;
+    }
+
+    /**
+     * Sorted keyword term IDs; callers must not modify the array
+     */
+    int[] getKeywordTerms() {
+        return keywordTerms;
+    }
+
+    /**
+     * Sorted question term IDs; callers must not modify the array
+     */
+    int[] getQuestionTerms() {
+        return questionTerms;
+    }
+}
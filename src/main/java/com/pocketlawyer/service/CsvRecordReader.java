@@ -0,0 +1,146 @@
+package com.pocketlawyer.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RFC 4180 CSV records, named by the header row
+ * Fields may be quoted with double quotes, which are escaped by doubling them;
+ * quoted fields may contain commas and line breaks. Blank lines are skipped.
+ * The input is read through a fixed buffer, so a record is the most that is
+ * ever held in memory.
+ */
+final class CsvRecordReader implements RecordReader {
+
+    private static final int END = -1;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> header;
+    private long line = 1;
+
+    CsvRecordReader(Reader in) throws IOException {
+        this.in = in;
+        // Skip a byte order mark
+        if (peek() == '\uFEFF') {
+            position++;
+        }
+        List<String> names = readRow();
+        if (names == null) {
+            throw new IOException("CSV input has no header row");
+        }
+        header = new ArrayList<>(names.size());
+        for (String name : names) {
+            header.add(name.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        List<String> values = readRow();
+        if (values == null) {
+            return null;
+        }
+        Map<String, String> record = new HashMap<>();
+        for (int i = 0; i < values.size() && i < header.size(); i++) {
+            record.put(header.get(i), values.get(i));
+        }
+        return record;
+    }
+
+    /**
+     * Fields of the next non-blank row, or null at the end of the input
+     */
+    private List<String> readRow() throws IOException {
+        while (peek() == '\r' || peek() == '\n') {
+            endOfLine();
+        }
+        if (peek() == END) {
+            return null;
+        }
+
+        List<String> values = new ArrayList<>();
+        while (true) {
+            values.add(readField());
+            int c = peek();
+            if (c == ',') {
+                position++;
+            } else {
+                if (c != END) {
+                    endOfLine();
+                }
+                return values;
+            }
+        }
+    }
+
+    private String readField() throws IOException {
+        field.setLength(0);
+        if (peek() != '"') {
+            for (int c = peek(); c != ',' && c != '\r' && c != '\n' && c != END; c = peek()) {
+                field.append((char) c);
+                position++;
+            }
+            return field.toString();
+        }
+
+        long startLine = line;
+        position++;
+        while (true) {
+            int c = peek();
+            if (c == END) {
+                throw new IOException("Unterminated quoted field starting on line " + startLine);
+            }
+            position++;
+            if (c == '"') {
+                if (peek() != '"') {
+                    break;
+                }
+                position++;
+            } else if (c == '\n') {
+                line++;
+            }
+            field.append((char) c);
+        }
+        int c = peek();
+        if (c != ',' && c != '\r' && c != '\n' && c != END) {
+            throw new IOException("Unexpected character after quoted field on line " + line);
+        }
+        return field.toString();
+    }
+
+    private void endOfLine() throws IOException {
+        if (peek() == '\r') {
+            position++;
+        }
+        if (peek() == '\n') {
+            position++;
+        }
+        line++;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return END;
+            }
+        }
+        return buffer[position];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
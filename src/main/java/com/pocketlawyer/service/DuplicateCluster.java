@@ -0,0 +1,46 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Q&A pairs whose questions and keywords are near-identical
+ * The representative is the pair with the highest priority, then the lowest
+ * qa_id; it is the one the chatbot answers with when duplicates are collapsed.
+ */
+public class DuplicateCluster {
+    private final LegalQA representative;
+    private final List<LegalQA> duplicates;
+
+    public DuplicateCluster(LegalQA representative, List<LegalQA> duplicates) {
+        this.representative = representative;
+        this.duplicates = Collections.unmodifiableList(duplicates);
+    }
+
+    public LegalQA getRepresentative() {
+        return representative;
+    }
+
+    /**
+     * The other pairs of the cluster, by preference like the representative
+     */
+    public List<LegalQA> getDuplicates() {
+        return duplicates;
+    }
+
+    public int size() {
+        return duplicates.size() + 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("DuplicateCluster[").append(representative.getQaId())
+            .append(" '").append(representative.getQuestion()).append("'");
+        for (LegalQA duplicate : duplicates) {
+            text.append(", ").append(duplicate.getQaId()).append(" '").append(duplicate.getQuestion()).append("'");
+        }
+        return text.append(']').toString();
+    }
+}
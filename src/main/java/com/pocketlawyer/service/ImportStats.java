@@ -0,0 +1,118 @@
+package com.pocketlawyer.service;
+
+/**
+ * Progress of a bulk import, reported after every committed chunk and at the end
+ */
+public class ImportStats {
+    private final String source;
+    private final long recordsRead;
+    private final long rowsImported;
+    private final long recordsSkipped;
+    private final long recordsResumed;
+    private final long nearDuplicates;
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long elapsedMillis;
+    private final boolean finished;
+    private final boolean failed;
+
+    public ImportStats(String source, long recordsRead, long rowsImported, long recordsSkipped, long recordsResumed,
+                       long nearDuplicates, long bytesRead, long totalBytes, long elapsedMillis,
+                       boolean finished, boolean failed) {
+        this.source = source;
+        this.recordsRead = recordsRead;
+        this.rowsImported = rowsImported;
+        this.recordsSkipped = recordsSkipped;
+        this.recordsResumed = recordsResumed;
+        this.nearDuplicates = nearDuplicates;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.elapsedMillis = elapsedMillis;
+        this.finished = finished;
+        this.failed = failed;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Records read from the file so far, including those committed by an earlier run
+     */
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    /**
+     * Rows committed by this run
+     */
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    /**
+     * Records left out by this run because a required column was missing or invalid
+     */
+    public long getRecordsSkipped() {
+        return recordsSkipped;
+    }
+
+    /**
+     * Records committed by an earlier run and passed over when resuming
+     */
+    public long getRecordsResumed() {
+        return recordsResumed;
+    }
+
+    /**
+     * Q&A records near-identical to an existing pair or an earlier record; left out only if skipping them is on
+     */
+    public long getNearDuplicates() {
+        return nearDuplicates;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? 0 : rowsImported * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * Share of the file read so far, from 0 to 100
+     */
+    public double getPercentDone() {
+        return totalBytes == 0 ? 100 : Math.min(100, bytesRead * 100.0 / totalBytes);
+    }
+
+    /**
+     * Whether the whole file has been imported
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Whether the import stopped on an error; running it again resumes after the last committed chunk
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportStats[source=%s, read=%d, imported=%d, skipped=%d, resumed=%d, " +
+            "nearDuplicates=%d, done=%.1f%%, rowsPerSecond=%.0f, elapsedMillis=%d, finished=%b, failed=%b]",
+            source, recordsRead, rowsImported, recordsSkipped, recordsResumed, nearDuplicates,
+            getPercentDone(), getRowsPerSecond(), elapsedMillis, finished, failed);
+    }
+}
@@ -0,0 +1,114 @@
+package com.pocketlawyer.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads arrays written by IndexOutput from a (typically memory-mapped) buffer
+ * Numeric arrays are copied out with bulk view gets rather than value by value.
+ * Every length is checked against the bytes left before anything is
+ * allocated, so a damaged file fails with an IOException rather than an
+ * OutOfMemoryError.
+ */
+final class IndexInput {
+
+    private static final int[][] NO_ROWS = new int[0][];
+
+    private final ByteBuffer buffer;
+
+    IndexInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    int readInt() {
+        return buffer.getInt();
+    }
+
+    long readLong() {
+        return buffer.getLong();
+    }
+
+    String readString() throws IOException {
+        byte[] bytes = readBytes();
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    byte[] readBytes() throws IOException {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[checkLength(length, Byte.BYTES)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    int[] readIntArray() throws IOException {
+        int[] values = new int[checkLength(buffer.getInt(), Integer.BYTES)];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    int[][] readIntArrays() throws IOException {
+        int[] lengths = readIntArray();
+        if (lengths.length == 0) {
+            return NO_ROWS;
+        }
+        long total = 0;
+        for (int length : lengths) {
+            if (length < 0) {
+                throw new IOException("Negative array length " + length);
+            }
+            total += length;
+        }
+        int[] values = new int[checkLength(total, Integer.BYTES)];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+
+        int[][] rows = new int[lengths.length][];
+        int[] empty = new int[0];
+        int start = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            rows[i] = lengths[i] == 0 ? empty : Arrays.copyOfRange(values, start, start + lengths[i]);
+            start += lengths[i];
+        }
+        return rows;
+    }
+
+    float[] readFloatArray() throws IOException {
+        float[] values = new float[checkLength(buffer.getInt(), Float.BYTES)];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Float.BYTES);
+        return values;
+    }
+
+    /**
+     * Read a count of items that each take at least minBytes of what follows
+     */
+    int readCount(int minBytes) throws IOException {
+        return checkLength(buffer.getInt(), minBytes);
+    }
+
+    /**
+     * Hand out the next length bytes as a separate buffer without copying them
+     */
+    ByteBuffer slice(int length) throws IOException {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(checkLength(length, Byte.BYTES));
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    /**
+     * The length, if that many items of the given size fit in the bytes left
+     */
+    private int checkLength(long length, int itemBytes) throws IOException {
+        if (length < 0 || length > buffer.remaining() / itemBytes) {
+            throw new IOException("Length " + length + " exceeds the " + buffer.remaining() + " bytes left");
+        }
+        return (int) length;
+    }
+}
@@ -0,0 +1,120 @@
+package com.pocketlawyer.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the primitive arrays of the knowledge index in the layout read by IndexInput
+ * Arrays are prefixed with their length; arrays of arrays are written as a
+ * length array followed by all values back to back. Values are staged in a
+ * buffer with the same byte order IndexInput reads them in.
+ */
+final class IndexOutput {
+
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    IndexOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    void writeInt(int value) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    void writeString(String value) throws IOException {
+        writeBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Length-prefixed bytes; a length of -1 marks null
+     */
+    void writeBytes(byte[] value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        writeInt(value.length);
+        writeRaw(value);
+    }
+
+    /**
+     * Bytes without a length prefix
+     */
+    void writeRaw(byte[] value) throws IOException {
+        drain();
+        out.write(value);
+    }
+
+    /**
+     * The remaining bytes of a heap or direct buffer, without a length prefix
+     */
+    void writeBuffer(ByteBuffer value) throws IOException {
+        ByteBuffer source = value.duplicate();
+        while (source.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(source.remaining(), buffer.remaining());
+            ByteBuffer part = source.duplicate();
+            part.limit(part.position() + chunk);
+            buffer.put(part);
+            source.position(source.position() + chunk);
+        }
+    }
+
+    void writeIntArray(int[] values) throws IOException {
+        writeInt(values.length);
+        writeInts(values);
+    }
+
+    void writeIntArrays(int[][] values) throws IOException {
+        int[] lengths = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            lengths[i] = values[i].length;
+        }
+        writeIntArray(lengths);
+        for (int[] row : values) {
+            writeInts(row);
+        }
+    }
+
+    void writeFloatArray(float[] values) throws IOException {
+        writeInt(values.length);
+        for (float value : values) {
+            ensureRemaining(Float.BYTES);
+            buffer.putFloat(value);
+        }
+    }
+
+    void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void writeInts(int[] values) throws IOException {
+        for (int value : values) {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
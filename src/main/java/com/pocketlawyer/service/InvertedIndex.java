@@ -0,0 +1,133 @@
+package com.pocketlawyer.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Inverted index from term ID to the compiled Q&A entries containing it
+ * Postings cover both the keywords column and the question tokens, and hold
+ * entry positions in ascending order.
+ */
+final class InvertedIndex {
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final int documentCount;
+    private final int[][] postings;
+
+    InvertedIndex(List<CompiledQA> entries, int termCount) {
+        this.documentCount = entries.size();
+        this.postings = buildPostings(entries, termCount);
+    }
+
+    private InvertedIndex(int documentCount, int[][] postings) {
+        this.documentCount = documentCount;
+        this.postings = postings;
+    }
+
+    /**
+     * Combine the postings of two indexes under new entry positions
+     * aMap and bMap give each entry's new position, or -1 to drop it, and must
+     * be increasing over the entries they keep.
+     */
+    static InvertedIndex merge(InvertedIndex a, int[] aMap, InvertedIndex b, int[] bMap,
+                               int documentCount, int termCount) {
+        int[][] postings = new int[termCount][];
+        int[] merged = new int[documentCount];
+        for (int term = 0; term < termCount; term++) {
+            int[] aDocs = a.getPostings(term);
+            int[] bDocs = b.getPostings(term);
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < aDocs.length || j < bDocs.length) {
+                int aDoc = i < aDocs.length ? aMap[aDocs[i]] : Integer.MAX_VALUE;
+                int bDoc = j < bDocs.length ? bMap[bDocs[j]] : Integer.MAX_VALUE;
+                if (aDoc < 0) {
+                    i++;
+                } else if (bDoc < 0) {
+                    j++;
+                } else if (aDoc < bDoc) {
+                    merged[count++] = aDoc;
+                    i++;
+                } else {
+                    merged[count++] = bDoc;
+                    j++;
+                }
+            }
+            postings[term] = count == 0 ? NO_POSTINGS : Arrays.copyOf(merged, count);
+        }
+        return new InvertedIndex(documentCount, postings);
+    }
+
+    private static int[][] buildPostings(List<CompiledQA> entries, int termCount) {
+        int[] lengths = new int[termCount];
+        for (CompiledQA entry : entries) {
+            forEachTerm(entry, term -> lengths[term]++);
+        }
+
+        int[][] result = new int[termCount][];
+        for (int term = 0; term < termCount; term++) {
+            result[term] = lengths[term] == 0 ? NO_POSTINGS : new int[lengths[term]];
+        }
+
+        int[] fill = new int[termCount];
+        for (int doc = 0; doc < entries.size(); doc++) {
+            final int current = doc;
+            forEachTerm(entries.get(doc), term -> result[term][fill[term]++] = current);
+        }
+        return result;
+    }
+
+    /**
+     * Visit the union of an entry's keyword and question terms (both sorted)
+     */
+    private static void forEachTerm(CompiledQA entry, IntConsumer action) {
+        int[] a = entry.getKeywordTerms();
+        int[] b = entry.getQuestionTerms();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                action.accept(a[i++]);
+            } else if (i == a.length || b[j] < a[i]) {
+                action.accept(b[j++]);
+            } else {
+                action.accept(a[i]);
+                i++;
+                j++;
+            }
+        }
+    }
+
+    int size() {
+        return documentCount;
+    }
+
+    int[] getPostings(int term) {
+        return term >= 0 && term < postings.length ? postings[term] : NO_POSTINGS;
+    }
+
+    /**
+     * Collect entries sharing at least one term with the query into the scratch candidates
+     * Cost is proportional to the matched postings, not to the index size.
+     */
+    void collectCandidates(QueryScratch scratch) {
+        scratch.resetCandidates(documentCount);
+        collectCandidates(scratch, 0, documentCount);
+    }
+
+    /**
+     * Add the matching entries in [fromDoc, toDoc) to the current candidates
+     */
+    void collectCandidates(QueryScratch scratch, int fromDoc, int toDoc) {
+        int[] terms = scratch.terms();
+        for (int t = 0; t < scratch.termCount(); t++) {
+            int[] docs = getPostings(terms[t]);
+            for (int p = Postings.lowerBound(docs, fromDoc); p < docs.length && docs[p] < toDoc; p++) {
+                scratch.slotOf(docs[p]);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.pocketlawyer.service;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * JSON Lines records: one flat JSON object per line
+ * Read with Gson's streaming JsonReader, so only the current object is held
+ * in memory. Strings, numbers and booleans become text values; nested arrays
+ * and objects are skipped.
+ */
+final class JsonLinesRecordReader implements RecordReader {
+
+    private final JsonReader in;
+    private long record;
+
+    JsonLinesRecordReader(Reader in) {
+        this.in = new JsonReader(in);
+        // Lenient mode accepts a sequence of top-level values
+        this.in.setLenient(true);
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.END_DOCUMENT) {
+            return null;
+        }
+        record++;
+        if (token != JsonToken.BEGIN_OBJECT) {
+            throw new IOException("Record " + record + " is not a JSON object: " + in);
+        }
+
+        Map<String, String> values = new HashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName().toLowerCase(Locale.ROOT);
+            switch (in.peek()) {
+                case STRING:
+                case NUMBER:
+                    values.put(name, in.nextString());
+                    break;
+                case BOOLEAN:
+                    values.put(name, String.valueOf(in.nextBoolean()));
+                    break;
+                case NULL:
+                    in.nextNull();
+                    values.put(name, null);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
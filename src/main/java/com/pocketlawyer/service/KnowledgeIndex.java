@@ -0,0 +1,184 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiled knowledge base: the term dictionary together with every
+ * structure keyed by its term IDs, built and replaced as one unit
+ * Entries are ordered by category_id, so each category is a partition of
+ * consecutive entry positions and a slice of every posting list.
+ */
+final class KnowledgeIndex {
+
+    private final TermDictionary dictionary;
+    private final List<CompiledQA> entries;
+    private final AnswerStore answers;
+    private final InvertedIndex invertedIndex;
+    private final Bm25Index bm25Index;
+    private final SpellingIndex spellingIndex;
+    private final PhraseIndex phraseIndex;
+    private final CategoryClassifier classifier;
+
+    // Partition p holds category partitionCategoryIds[p] at [partitionStarts[p], partitionStarts[p + 1])
+    private final int[] partitionCategoryIds;
+    private final int[] partitionStarts;
+
+    // Latest created_at or updated_at of any entry, 0 if there is none
+    private final long lastModified;
+    // (qa_id << 32 | position) of every entry, sorted, to find entries by qa_id
+    private final long[] entriesByQaId;
+
+    KnowledgeIndex(TermDictionary dictionary, List<CompiledQA> entries, AnswerStore answers, Bm25Index bm25Index,
+                   SpellingIndex spellingIndex, PhraseIndex phraseIndex, CategoryClassifier classifier) {
+        this(dictionary, entries, answers, new InvertedIndex(entries, dictionary.size()), bm25Index, spellingIndex,
+            phraseIndex, classifier);
+    }
+
+    KnowledgeIndex(TermDictionary dictionary, List<CompiledQA> entries, AnswerStore answers,
+                   InvertedIndex invertedIndex, Bm25Index bm25Index, SpellingIndex spellingIndex,
+                   PhraseIndex phraseIndex, CategoryClassifier classifier) {
+        this.dictionary = dictionary;
+        this.entries = Collections.unmodifiableList(entries);
+        this.answers = answers;
+        this.invertedIndex = invertedIndex;
+        this.bm25Index = bm25Index;
+        this.spellingIndex = spellingIndex;
+        this.phraseIndex = phraseIndex;
+        this.classifier = classifier;
+
+        int[] categoryIds = new int[entries.size()];
+        int[] starts = new int[entries.size() + 1];
+        int partitions = 0;
+        long lastModified = 0;
+        long[] byQaId = new long[entries.size()];
+        for (int doc = 0; doc < entries.size(); doc++) {
+            LegalQA header = entries.get(doc).getQA();
+            byQaId[doc] = ((long) header.getQaId() << 32) | doc;
+            lastModified = Math.max(lastModified, Math.max(millis(header.getCreatedAt()), millis(header.getUpdatedAt())));
+            int categoryId = header.getCategoryId();
+            if (partitions == 0 || categoryIds[partitions - 1] != categoryId) {
+                categoryIds[partitions] = categoryId;
+                starts[partitions++] = doc;
+            }
+        }
+        starts[partitions] = entries.size();
+        this.partitionCategoryIds = Arrays.copyOf(categoryIds, partitions);
+        this.partitionStarts = Arrays.copyOf(starts, partitions + 1);
+        this.lastModified = lastModified;
+        Arrays.sort(byQaId);
+        this.entriesByQaId = byQaId;
+    }
+
+    private static long millis(Timestamp timestamp) {
+        return timestamp == null ? 0 : timestamp.getTime();
+    }
+
+    /**
+     * Latest modification time of the indexed rows, in epoch millis; rows changed
+     * at or after it may be missing from the index
+     */
+    long getLastModified() {
+        return lastModified;
+    }
+
+    TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    CompiledQA getEntry(int doc) {
+        return entries.get(doc);
+    }
+
+    List<CompiledQA> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Position of the entry with a qa_id, or -1 if it is not indexed
+     */
+    int findEntry(int qaId) {
+        int i = Arrays.binarySearch(entriesByQaId, (long) qaId << 32);
+        i = i < 0 ? -i - 1 : i;
+        return i < entriesByQaId.length && (int) (entriesByQaId[i] >> 32) == qaId ? (int) entriesByQaId[i] : -1;
+    }
+
+    /**
+     * Materialize the full Q&A of an entry, question and answer included
+     */
+    LegalQA getQA(int doc) {
+        LegalQA header = entries.get(doc).getQA();
+        LegalQA qa = new LegalQA(null, null, header.getKeywords());
+        answers.copyTexts(doc, qa);
+        qa.setQaId(header.getQaId());
+        qa.setCategoryId(header.getCategoryId());
+        qa.setPriority(header.getPriority());
+        qa.setCreatedAt(header.getCreatedAt());
+        qa.setUpdatedAt(header.getUpdatedAt());
+        return qa;
+    }
+
+    String getQuestion(int doc) {
+        return answers.getQuestion(doc);
+    }
+
+    String getAnswer(int doc) {
+        return answers.getAnswer(doc);
+    }
+
+    AnswerStore getAnswers() {
+        return answers;
+    }
+
+    InvertedIndex getInvertedIndex() {
+        return invertedIndex;
+    }
+
+    Bm25Index getBm25Index() {
+        return bm25Index;
+    }
+
+    SpellingIndex getSpellingIndex() {
+        return spellingIndex;
+    }
+
+    PhraseIndex getPhraseIndex() {
+        return phraseIndex;
+    }
+
+    CategoryClassifier getClassifier() {
+        return classifier;
+    }
+
+    int partitionCount() {
+        return partitionCategoryIds.length;
+    }
+
+    int getPartitionCategoryId(int partition) {
+        return partitionCategoryIds[partition];
+    }
+
+    int getPartitionStart(int partition) {
+        return partitionStarts[partition];
+    }
+
+    int getPartitionEnd(int partition) {
+        return partitionStarts[partition + 1];
+    }
+
+    /**
+     * Partition holding a category's entries, or -1 if it has none
+     */
+    int findPartition(int categoryId) {
+        int partition = Arrays.binarySearch(partitionCategoryIds, categoryId);
+        return partition < 0 ? -1 : partition;
+    }
+}
@@ -0,0 +1,265 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Compiles Q&A rows into a KnowledgeIndex, either from scratch or as a patch of an existing one
+ * Entries are ordered by category, then by priority descending and qa_id,
+ * so each category is a partition of consecutive positions. A patch only
+ * tokenizes the changed rows and merges them into copies of the existing
+ * structures, so its cost grows with the changes plus a copy of each
+ * structure rather than with a full build; the source index is never modified.
+ */
+final class KnowledgeIndexBuilder {
+
+    // Order of entries within the index, matching the order legal_qa is read in within a category
+    private static final Comparator<LegalQA> ENTRY_ORDER = Comparator.comparingInt(LegalQA::getCategoryId)
+        .thenComparing(Comparator.comparingInt(LegalQA::getPriority).reversed())
+        .thenComparingInt(LegalQA::getQaId);
+
+    private final Tokenizer tokenizer = new Tokenizer();
+    private final TermDictionary dictionary;
+    private final List<CompiledQA> compiled = new ArrayList<>();
+    private final Bm25Index.Builder bm25Builder = new Bm25Index.Builder();
+    private final PhraseIndex.Builder phraseBuilder = new PhraseIndex.Builder();
+    // Term counts of added and removed entries when patching, otherwise null
+    private CategoryClassifier.Changes classifierChanges;
+
+    private KnowledgeIndexBuilder(TermDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Tokenize every Q&A once and intern its terms, so scoring only touches
+     * precomputed term IDs
+     *
+     * @param categoryNames names from legal_categories by category_id
+     */
+    static KnowledgeIndex build(List<LegalQA> loaded, Map<Integer, String> categoryNames) {
+        List<LegalQA> entries = new ArrayList<>(loaded);
+        entries.sort(ENTRY_ORDER);
+
+        Streaming streaming = new Streaming();
+        entries.forEach(streaming);
+        return streaming.build(categoryNames);
+    }
+
+    /**
+     * Builds an index from rows passed one at a time in entry order, as they are read
+     * Only the compiled terms and compressed texts are kept, so a table is
+     * indexed without ever holding its rows. Rows come in entry order when read
+     * by category_id, then priority descending and qa_id.
+     */
+    static final class Streaming implements Consumer<LegalQA> {
+        private final KnowledgeIndexBuilder builder = new KnowledgeIndexBuilder(new TermDictionary());
+        private final AnswerStore.Builder answers = new AnswerStore.Builder();
+        private LegalQA last;
+
+        /**
+         * @throws IllegalArgumentException if the row comes before the previous one in entry order
+         */
+        @Override
+        public void accept(LegalQA qa) {
+            if (last != null && ENTRY_ORDER.compare(last, qa) > 0) {
+                throw new IllegalArgumentException("Q&A " + qa.getQaId() + " comes before Q&A "
+                    + last.getQaId() + " in entry order");
+            }
+            builder.add(qa);
+            answers.add(qa.getQuestion(), qa.getAnswer());
+            last = qa;
+        }
+
+        KnowledgeIndex build(Map<Integer, String> categoryNames) {
+            TermDictionary dictionary = builder.dictionary;
+            return assemble(dictionary, builder.compiled, answers.build(),
+                builder.bm25Builder.build(dictionary.size()), builder.phraseBuilder.build(), categoryNames);
+        }
+    }
+
+    /**
+     * Apply changed and deleted rows to an index
+     * Changed rows replace the entry with the same qa_id, or are added if there
+     * is none; entries whose qa_id is in removedIds are dropped. Unchanged
+     * entries keep their compiled terms, and their positions keep their order.
+     *
+     * @param changed rows inserted or updated since the source was built
+     * @param removedIds sorted qa_ids deleted since the source was built
+     */
+    static KnowledgeIndex patch(KnowledgeIndex source, List<LegalQA> changed, int[] removedIds,
+                                Map<Integer, String> categoryNames) {
+        List<LegalQA> fresh = new ArrayList<>(changed);
+        fresh.sort(ENTRY_ORDER);
+        int[] changedIds = fresh.stream().mapToInt(LegalQA::getQaId).sorted().toArray();
+
+        KnowledgeIndexBuilder builder = new KnowledgeIndexBuilder(source.getDictionary().copy());
+        builder.classifierChanges = new CategoryClassifier.Changes();
+        for (LegalQA qa : fresh) {
+            builder.add(qa);
+        }
+
+        // Interleave kept and fresh entries; both sequences stay in their own order.
+        // origin[p] is the source position of new position p, or -1 - i for fresh row i
+        int[] sourceMap = new int[source.size()];
+        int[] freshMap = new int[fresh.size()];
+        List<CompiledQA> entries = new ArrayList<>(source.size() + fresh.size());
+        int[] origin = new int[source.size() + fresh.size()];
+        int f = 0;
+        for (int doc = 0; doc < source.size(); doc++) {
+            LegalQA header = source.getEntry(doc).getQA();
+            int qaId = header.getQaId();
+            if (Arrays.binarySearch(changedIds, qaId) >= 0 || Arrays.binarySearch(removedIds, qaId) >= 0) {
+                sourceMap[doc] = -1;
+                builder.remove(source, doc);
+                continue;
+            }
+            for (; f < fresh.size() && ENTRY_ORDER.compare(fresh.get(f), header) < 0; f++) {
+                origin[entries.size()] = -1 - f;
+                freshMap[f] = entries.size();
+                entries.add(builder.compiled.get(f));
+            }
+            origin[entries.size()] = doc;
+            sourceMap[doc] = entries.size();
+            entries.add(source.getEntry(doc));
+        }
+        for (; f < fresh.size(); f++) {
+            origin[entries.size()] = -1 - f;
+            freshMap[f] = entries.size();
+            entries.add(builder.compiled.get(f));
+        }
+
+        // Copy compressed text blocks that are kept whole, and compress only the rest
+        AnswerStore sourceAnswers = source.getAnswers();
+        AnswerStore.Builder answers = new AnswerStore.Builder();
+        for (int p = 0; p < entries.size(); p++) {
+            if (origin[p] < 0) {
+                LegalQA row = fresh.get(-1 - origin[p]);
+                answers.add(row.getQuestion(), row.getAnswer());
+                continue;
+            }
+            int block = sourceAnswers.blockOf(origin[p]);
+            if (keptWhole(sourceAnswers, block, sourceMap, p)) {
+                answers.copyBlock(sourceAnswers, block);
+                p += sourceAnswers.blockEnd(block) - sourceAnswers.blockStart(block) - 1;
+            } else {
+                answers.add(sourceAnswers, origin[p]);
+            }
+        }
+
+        TermDictionary dictionary = builder.dictionary;
+        InvertedIndex invertedIndex = InvertedIndex.merge(source.getInvertedIndex(), sourceMap,
+            new InvertedIndex(builder.compiled, dictionary.size()), freshMap, entries.size(), dictionary.size());
+        Bm25Index bm25Index = Bm25Index.merge(source.getBm25Index(), sourceMap,
+            builder.bm25Builder.build(dictionary.size()), freshMap, entries.size(), dictionary.size());
+        PhraseIndex phraseIndex = PhraseIndex.merge(source.getPhraseIndex(), sourceMap,
+            builder.phraseBuilder.build(), freshMap, entries.size());
+        // Terms are only ever added to the dictionary, so only their deletes are new
+        SpellingIndex spellingIndex = source.getSpellingIndex().withAddedTerms(dictionary,
+            bm25Index::documentFrequency);
+        CategoryClassifier classifier = source.getClassifier().apply(builder.classifierChanges,
+            dictionary.size(), categoryNames);
+        return new KnowledgeIndex(dictionary, entries, answers.build(), invertedIndex, bm25Index, spellingIndex,
+            phraseIndex, classifier);
+    }
+
+    /**
+     * Whether every entry of a text block moves, in order and without gaps, to the positions from p on
+     */
+    private static boolean keptWhole(AnswerStore answers, int block, int[] sourceMap, int p) {
+        int start = answers.blockStart(block);
+        for (int doc = start; doc < answers.blockEnd(block); doc++) {
+            if (sourceMap[doc] != p + doc - start) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a row still has the columns an entry was compiled from
+     */
+    static boolean isUnchanged(KnowledgeIndex index, int doc, LegalQA row) {
+        LegalQA header = index.getEntry(doc).getQA();
+        return header.getCategoryId() == row.getCategoryId()
+            && header.getPriority() == row.getPriority()
+            && Objects.equals(header.getUpdatedAt(), row.getUpdatedAt())
+            && Objects.equals(header.getKeywords(), row.getKeywords())
+            && Objects.equals(index.getQuestion(doc), row.getQuestion())
+            && Objects.equals(index.getAnswer(doc), row.getAnswer());
+    }
+
+    private static KnowledgeIndex assemble(TermDictionary dictionary, List<CompiledQA> entries, AnswerStore answers,
+                                           Bm25Index bm25Index, PhraseIndex phraseIndex,
+                                           Map<Integer, String> categoryNames) {
+        return new KnowledgeIndex(dictionary, entries, answers, bm25Index,
+            SpellingIndex.build(dictionary, bm25Index::documentFrequency), phraseIndex,
+            CategoryClassifier.train(bm25Index, entries, dictionary.size(), categoryNames));
+    }
+
+    private void add(LegalQA qa) {
+        int[] questionTerms = internTerms(qa.getQuestion());
+        int[] keywordTerms = internTerms(qa.getKeywords());
+        int[] answerTerms = internTerms(qa.getAnswer());
+
+        compiled.add(new CompiledQA(withoutTexts(qa), sortedUnique(keywordTerms), sortedUnique(questionTerms)));
+        bm25Builder.addDocument(questionTerms, keywordTerms, answerTerms);
+        phraseBuilder.addDocument(extractPhrases(qa, questionTerms));
+        if (classifierChanges != null) {
+            classifierChanges.add(qa.getCategoryId(), questionTerms, keywordTerms, answerTerms);
+        }
+    }
+
+    /**
+     * Take a dropped source entry out of the classifier, tokenizing its texts again
+     */
+    private void remove(KnowledgeIndex source, int doc) {
+        LegalQA header = source.getEntry(doc).getQA();
+        classifierChanges.remove(header.getCategoryId(), internTerms(source.getQuestion(doc)),
+            internTerms(header.getKeywords()), internTerms(source.getAnswer(doc)));
+    }
+
+    private static LegalQA withoutTexts(LegalQA qa) {
+        LegalQA header = new LegalQA(null, null, qa.getKeywords());
+        header.setQaId(qa.getQaId());
+        header.setCategoryId(qa.getCategoryId());
+        header.setPriority(qa.getPriority());
+        header.setCreatedAt(qa.getCreatedAt());
+        header.setUpdatedAt(qa.getUpdatedAt());
+        return header;
+    }
+
+    /**
+     * Multi-word phrases of an entry: each comma-separated keyword with several
+     * terms, and every pair of adjacent question terms
+     */
+    private List<int[]> extractPhrases(LegalQA qa, int[] questionTerms) {
+        List<int[]> phrases = new ArrayList<>();
+        if (qa.getKeywords() != null) {
+            for (String keyword : qa.getKeywords().split(",")) {
+                phrases.add(internTerms(keyword));
+            }
+        }
+        for (int i = 0; i + 1 < questionTerms.length; i++) {
+            phrases.add(new int[] {questionTerms[i], questionTerms[i + 1]});
+        }
+        return phrases;
+    }
+
+    private int[] internTerms(String text) {
+        IntStream.Builder ids = IntStream.builder();
+        tokenizer.tokenize(text, (term, length) -> ids.add(dictionary.intern(term, length)));
+        return ids.build().toArray();
+    }
+
+    private static int[] sortedUnique(int[] ids) {
+        return Arrays.stream(ids).distinct().sorted().toArray();
+    }
+}
@@ -0,0 +1,288 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of a built KnowledgeIndex, opened with FileChannel.map on startup
+ * The file stores the term dictionary, entry metadata, every scoring structure
+ * and the compressed question and answer texts. It is tagged with a
+ * fingerprint of the legal_qa table and only used while the table still has
+ * that fingerprint. Texts stay compressed in the mapping and are inflated when
+ * an entry is returned.
+ * <p>
+ * The header holds the length and CRC32C of the body, which is checked before
+ * anything is parsed, so a truncated or damaged file is rebuilt rather than
+ * read. Each save writes a new generation, path.1, path.2 and so on, rather
+ * than replacing the file in place: the running index keeps the previous
+ * generation mapped, and a mapped file cannot be replaced or deleted on
+ * Windows. Older generations are deleted once nothing maps them.
+ */
+final class KnowledgeIndexFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnowledgeIndexFile.class);
+
+    private static final int MAGIC = 0x504C4B49;
+    // Bump whenever the layout or the meaning of any stored structure changes
+    private static final int FORMAT_VERSION = 5;
+    private static final int HEADER_BYTES = 4096;
+    // Where the body length and checksum are patched in once the body is written
+    private static final int BODY_INFO_OFFSET = 2 * Integer.BYTES;
+    // Three ints, two timestamps and three length prefixes
+    private static final int MIN_ENTRY_BYTES = 6 * Integer.BYTES + 2 * Long.BYTES;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final Path path;
+
+    KnowledgeIndexFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Open the latest index file if it was written for the given fingerprint
+     *
+     * @return the stored index, or null if the file is missing, stale or unreadable
+     */
+    KnowledgeIndex load(String fingerprint, Map<Integer, String> categoryNames) {
+        Path file;
+        try {
+            file = latestGeneration();
+        } catch (IOException e) {
+            logger.warn("Could not list knowledge index files {}.*, rebuilding", path, e);
+            return null;
+        }
+        if (file == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Check the header before mapping, so a stale file is never held open by a mapping
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(channel.size(), HEADER_BYTES));
+            channel.read(header, 0);
+            header.flip();
+            IndexInput headerIn = new IndexInput(header);
+            if (headerIn.readInt() != MAGIC || headerIn.readInt() != FORMAT_VERSION) {
+                logger.info("Knowledge index file {} has an old format, rebuilding", file);
+                return null;
+            }
+            long bodyLength = headerIn.readLong();
+            int checksum = headerIn.readInt();
+            if (!fingerprint.equals(headerIn.readString())) {
+                logger.info("Knowledge index file {} is stale, rebuilding", file);
+                return null;
+            }
+            long bodyStart = header.position();
+            if (bodyStart + bodyLength != channel.size()) {
+                throw new IOException("Body is " + (channel.size() - bodyStart) + " bytes, expected " + bodyLength);
+            }
+
+            ByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, bodyStart, bodyLength);
+            CRC32C crc = new CRC32C();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch");
+            }
+            return read(new IndexInput(body), categoryNames);
+
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read knowledge index file {}, rebuilding", file, e);
+            return null;
+        }
+    }
+
+    private static KnowledgeIndex read(IndexInput in, Map<Integer, String> categoryNames) throws IOException {
+        TermDictionary dictionary = TermDictionary.read(in);
+
+        int entryCount = in.readCount(MIN_ENTRY_BYTES);
+        List<CompiledQA> entries = new ArrayList<>(entryCount);
+        for (int doc = 0; doc < entryCount; doc++) {
+            LegalQA qa = new LegalQA();
+            qa.setQaId(in.readInt());
+            qa.setCategoryId(in.readInt());
+            qa.setPriority(in.readInt());
+            qa.setCreatedAt(toTimestamp(in.readLong()));
+            qa.setUpdatedAt(toTimestamp(in.readLong()));
+            qa.setKeywords(in.readString());
+            entries.add(new CompiledQA(qa, in.readIntArray(), in.readIntArray()));
+        }
+
+        Bm25Index bm25Index = Bm25Index.read(in);
+        SpellingIndex spellingIndex = SpellingIndex.read(in, dictionary, bm25Index::documentFrequency);
+        PhraseIndex phraseIndex = PhraseIndex.read(in);
+        CategoryClassifier classifier = CategoryClassifier.read(in, categoryNames);
+
+        AnswerStore answers = AnswerStore.read(in);
+
+        return new KnowledgeIndex(dictionary, entries, answers, bm25Index, spellingIndex, phraseIndex, classifier);
+    }
+
+    /**
+     * Write the index under the given fingerprint as the next generation
+     * Written to a temporary file first, so readers never see a partial index,
+     * and then moved to a name no file has, which succeeds while the previous
+     * generation is still mapped.
+     */
+    void save(String fingerprint, KnowledgeIndex index) {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeIndexFile(channel, fingerprint, index);
+            }
+            Path latest = latestGeneration();
+            Path file = generationPath(latest == null ? 1 : generationOf(latest) + 1);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Saved knowledge index file {} ({} bytes)", file, Files.size(file));
+            deleteOlderGenerations(file);
+
+        } catch (IOException e) {
+            logger.warn("Could not save knowledge index file {}", path, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Overwritten by the next save
+            }
+        }
+    }
+
+    /**
+     * Write the header with a placeholder body length and checksum, the body, then the real values
+     */
+    private static void writeIndexFile(FileChannel channel, String fingerprint, KnowledgeIndex index)
+            throws IOException {
+        // Not closed: closing a channel stream closes the channel, which the caller owns
+        IndexOutput header = new IndexOutput(Channels.newOutputStream(channel));
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        header.writeLong(0);
+        header.writeInt(0);
+        header.writeString(fingerprint);
+        header.flush();
+        long bodyStart = channel.position();
+
+        CRC32C crc = new CRC32C();
+        OutputStream stream = new BufferedOutputStream(
+            new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16);
+        IndexOutput out = new IndexOutput(stream);
+        write(out, index);
+        out.flush();
+
+        ByteBuffer bodyInfo = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        bodyInfo.putLong(channel.position() - bodyStart).putInt((int) crc.getValue()).flip();
+        channel.write(bodyInfo, BODY_INFO_OFFSET);
+    }
+
+    /**
+     * Delete every generation before the given one, and the file from before generations
+     * A file still mapped, on Windows, cannot be deleted yet and is left for the next save.
+     */
+    private void deleteOlderGenerations(Path current) throws IOException {
+        List<Path> stale = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory(), path.getFileName() + ".*")) {
+            for (Path file : files) {
+                if (generationOf(file) > 0 && generationOf(file) < generationOf(current)) {
+                    stale.add(file);
+                }
+            }
+        }
+        stale.add(path);
+        for (Path file : stale) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.debug("Could not delete old knowledge index file {}, retrying on the next save", file, e);
+            }
+        }
+    }
+
+    /**
+     * The generation with the highest number, or null if none was saved
+     */
+    private Path latestGeneration() throws IOException {
+        if (!Files.isDirectory(directory())) {
+            return null;
+        }
+        Path latest = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory(), path.getFileName() + ".*")) {
+            for (Path file : files) {
+                if (generationOf(file) > 0 && (latest == null || generationOf(file) > generationOf(latest))) {
+                    latest = file;
+                }
+            }
+        }
+        return latest;
+    }
+
+    private Path directory() {
+        return path.toAbsolutePath().getParent();
+    }
+
+    private Path generationPath(long generation) {
+        return path.resolveSibling(path.getFileName() + "." + generation);
+    }
+
+    /**
+     * Generation number from a file name ending in .N, or 0 for any other file
+     */
+    private long generationOf(Path file) {
+        String suffix = file.getFileName().toString().substring(path.getFileName().toString().length() + 1);
+        try {
+            return Long.parseLong(suffix);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void write(IndexOutput out, KnowledgeIndex index) throws IOException {
+        index.getDictionary().write(out);
+
+        out.writeInt(index.size());
+        for (CompiledQA entry : index.getEntries()) {
+            LegalQA qa = entry.getQA();
+            out.writeInt(qa.getQaId());
+            out.writeInt(qa.getCategoryId());
+            out.writeInt(qa.getPriority());
+            out.writeLong(toMillis(qa.getCreatedAt()));
+            out.writeLong(toMillis(qa.getUpdatedAt()));
+            out.writeString(qa.getKeywords());
+            out.writeIntArray(entry.getKeywordTerms());
+            out.writeIntArray(entry.getQuestionTerms());
+        }
+
+        index.getBm25Index().write(out);
+        index.getSpellingIndex().write(out);
+        index.getPhraseIndex().write(out);
+        index.getClassifier().write(out);
+
+        index.getAnswers().write(out);
+    }
+
+    private static long toMillis(Timestamp timestamp) {
+        return timestamp == null ? NO_TIMESTAMP : timestamp.getTime();
+    }
+
+    private static Timestamp toTimestamp(long millis) {
+        return millis == NO_TIMESTAMP ? null : new Timestamp(millis);
+    }
+}
@@ -0,0 +1,60 @@
+package com.pocketlawyer.service;
+
+/**
+ * Immutable engine state for one knowledge base build
+ * Queries read a snapshot once and use it throughout, so a reload never
+ * exposes a half-built index or a cache holding answers from another build.
+ */
+final class KnowledgeSnapshot {
+
+    private final long version;
+    private final KnowledgeIndex index;
+    private final ResponseCache responseCache;
+    private final RoutingMetrics routingMetrics;
+    // Representative entry by entry position, or null if near-duplicates are not collapsed
+    private final int[] representatives;
+    private final long buildMillis;
+    private final long publishedAt;
+
+    KnowledgeSnapshot(long version, KnowledgeIndex index, ResponseCache responseCache, int[] representatives,
+                      long buildMillis) {
+        this.version = version;
+        this.index = index;
+        this.responseCache = responseCache;
+        this.routingMetrics = new RoutingMetrics(index.partitionCount());
+        this.representatives = representatives;
+        this.buildMillis = buildMillis;
+        this.publishedAt = System.currentTimeMillis();
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    KnowledgeIndex getIndex() {
+        return index;
+    }
+
+    ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    RoutingMetrics getRoutingMetrics() {
+        return routingMetrics;
+    }
+
+    /**
+     * Entry answering in place of an entry: itself, or its cluster's representative when near-duplicates are collapsed
+     */
+    int representativeOf(int doc) {
+        return representatives == null ? doc : representatives[doc];
+    }
+
+    long getBuildMillis() {
+        return buildMillis;
+    }
+
+    long getPublishedAt() {
+        return publishedAt;
+    }
+}
@@ -0,0 +1,187 @@
+package com.pocketlawyer.service;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * Locality-sensitive hashing index of MinHash signatures for finding near-duplicate shingle sets
+ * Each item gets SIGNATURE_LENGTH MinHash values, split into BANDS bands of
+ * ROWS values. Items whose signatures agree on a whole band become candidates,
+ * and a candidate is a near-duplicate if the share of equal MinHash values,
+ * which estimates the Jaccard similarity of the sets, reaches
+ * SIMILARITY_THRESHOLD. A band bucket keeps its first MAX_BUCKET_ITEMS items
+ * as candidates, so adding an item costs at most BANDS * MAX_BUCKET_ITEMS
+ * comparisons however large the index grows.
+ */
+final class MinHashIndex {
+
+    static final double SIMILARITY_THRESHOLD = 0.8;
+
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int SIGNATURE_LENGTH = BANDS * ROWS;
+    // Items beyond this many in one bucket are still compared with it, but not added to it
+    private static final int MAX_BUCKET_ITEMS = 16;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    // Fixed seeds, so signatures are comparable between runs
+    private static final long[] SEEDS = new SplittableRandom(0x4D696E48L).longs(SIGNATURE_LENGTH).toArray();
+
+    // Signature of item i is signatures[i * SIGNATURE_LENGTH, (i + 1) * SIGNATURE_LENGTH)
+    private int[] signatures;
+    private int size;
+
+    // Open-addressing table from (band << 32 | band hash) to the bucket's item list and its size
+    private long[] bucketKeys;
+    private int[] bucketHeads;
+    private int[] bucketSizes;
+    private int bucketCount;
+
+    // Bucket item lists, linked through nextLinks; -1 ends a list
+    private int[] linkItems;
+    private int[] nextLinks;
+    private int linkCount;
+
+    MinHashIndex(int expectedSize) {
+        signatures = new int[Math.max(expectedSize, 16) * SIGNATURE_LENGTH];
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 16) * BANDS * 2 - 1) << 1;
+        bucketKeys = new long[capacity];
+        Arrays.fill(bucketKeys, EMPTY);
+        bucketHeads = new int[capacity];
+        bucketSizes = new int[capacity];
+        linkItems = new int[Math.max(expectedSize, 16) * BANDS];
+        nextLinks = new int[linkItems.length];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add a shingle set as the next item and report the earlier items it is a near-duplicate of
+     * An empty set is added without being indexed, as it says nothing about its text.
+     *
+     * @param nearDuplicateOf receives each matching earlier item, possibly more than once
+     * @return position of the new item
+     */
+    int add(long[] shingles, IntConsumer nearDuplicateOf) {
+        int item = size++;
+        if (signatures.length < size * SIGNATURE_LENGTH) {
+            signatures = Arrays.copyOf(signatures, signatures.length * 2);
+        }
+        int offset = item * SIGNATURE_LENGTH;
+        if (shingles.length == 0) {
+            return item;
+        }
+        sign(shingles, signatures, offset);
+
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(band, offset + band * ROWS);
+            int slot = findSlot(key);
+            if (bucketKeys[slot] == EMPTY) {
+                bucketKeys[slot] = key;
+                bucketHeads[slot] = -1;
+                bucketSizes[slot] = 0;
+                bucketCount++;
+            }
+            for (int link = bucketHeads[slot]; link >= 0; link = nextLinks[link]) {
+                if (similarity(linkItems[link], item) >= SIMILARITY_THRESHOLD) {
+                    nearDuplicateOf.accept(linkItems[link]);
+                }
+            }
+            if (bucketSizes[slot] < MAX_BUCKET_ITEMS) {
+                link(slot, item);
+            }
+            if (bucketCount * 2 > bucketKeys.length) {
+                rehash();
+            }
+        }
+        return item;
+    }
+
+    private void link(int slot, int item) {
+        if (linkCount == linkItems.length) {
+            linkItems = Arrays.copyOf(linkItems, linkCount * 2);
+            nextLinks = Arrays.copyOf(nextLinks, linkCount * 2);
+        }
+        linkItems[linkCount] = item;
+        nextLinks[linkCount] = bucketHeads[slot];
+        bucketHeads[slot] = linkCount++;
+        bucketSizes[slot]++;
+    }
+
+    /**
+     * Estimated Jaccard similarity of the shingle sets of two items
+     */
+    double similarity(int a, int b) {
+        int aOffset = a * SIGNATURE_LENGTH;
+        int bOffset = b * SIGNATURE_LENGTH;
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            if (signatures[aOffset + i] == signatures[bOffset + i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_LENGTH;
+    }
+
+    private static void sign(long[] shingles, int[] signature, int offset) {
+        Arrays.fill(signature, offset, offset + SIGNATURE_LENGTH, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                int value = (int) (mix(shingle ^ SEEDS[i]) >>> 33);
+                if (value < signature[offset + i]) {
+                    signature[offset + i] = value;
+                }
+            }
+        }
+    }
+
+    private long bandKey(int band, int offset) {
+        int h = band;
+        for (int i = 0; i < ROWS; i++) {
+            h = 31 * h + signatures[offset + i];
+        }
+        return ((long) band << 32) | (h & 0xFFFFFFFFL);
+    }
+
+    private int findSlot(long key) {
+        int mask = bucketKeys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (bucketKeys[slot] != EMPTY && bucketKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] keys = bucketKeys;
+        int[] heads = bucketHeads;
+        int[] sizes = bucketSizes;
+        bucketKeys = new long[keys.length * 2];
+        Arrays.fill(bucketKeys, EMPTY);
+        bucketHeads = new int[keys.length * 2];
+        bucketSizes = new int[keys.length * 2];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                int slot = findSlot(keys[i]);
+                bucketKeys[slot] = keys[i];
+                bucketHeads[slot] = heads[i];
+                bucketSizes[slot] = sizes[i];
+            }
+        }
+    }
+
+    /**
+     * MurmurHash3 finalizer
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
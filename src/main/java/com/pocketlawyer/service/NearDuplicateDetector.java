@@ -0,0 +1,197 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Finds near-duplicate Q&A pairs by the terms of their question and keywords
+ * Questions are short, so the shingles of a pair are its distinct terms as
+ * produced by the Tokenizer. Pairs are added one by one to a MinHashIndex,
+ * which finds near-duplicates without comparing every pair with every other.
+ * A cluster is represented by its pair with the highest priority, then the
+ * lowest qa_id, and a pair only joins a cluster whose representative it is a
+ * near-duplicate of, so clusters do not chain through intermediate pairs.
+ *
+ * An instance checks pairs as they are added, for the import path; the static
+ * methods cluster a whole list or knowledge index at once.
+ */
+public final class NearDuplicateDetector {
+
+    /**
+     * Returned by add when a pair has no near-duplicate
+     */
+    static final int NONE = Integer.MIN_VALUE;
+
+    // Representatives come first, so the earliest pair of a cluster represents it
+    private static final Comparator<LegalQA> PREFERENCE = Comparator.comparingInt(LegalQA::getPriority).reversed()
+        .thenComparingInt(LegalQA::getQaId);
+
+    private final MinHashIndex index;
+    private final Tokenizer tokenizer = new Tokenizer();
+    private int[] labels;
+
+    NearDuplicateDetector(int expectedSize) {
+        this.index = new MinHashIndex(expectedSize);
+        this.labels = new int[Math.max(expectedSize, 16)];
+    }
+
+    /**
+     * Add a pair under a caller-chosen label
+     *
+     * @return label of the earliest pair added before that this one near-duplicates, or NONE
+     */
+    int add(int label, String question, String keywords) {
+        int[] match = {-1};
+        int item = index.add(shingles(tokenizer, question, keywords), other -> {
+            if (match[0] < 0 || other < match[0]) {
+                match[0] = other;
+            }
+        });
+        if (item == labels.length) {
+            labels = Arrays.copyOf(labels, item * 2);
+        }
+        labels[item] = label;
+        return match[0] < 0 ? NONE : labels[match[0]];
+    }
+
+    /**
+     * Clusters of near-duplicate pairs among the given rows; only question and keywords are compared
+     */
+    public static List<DuplicateCluster> findClusters(List<LegalQA> rows) {
+        List<LegalQA> ordered = new ArrayList<>(rows);
+        ordered.sort(PREFERENCE);
+        Tokenizer tokenizer = new Tokenizer();
+        int[] representatives = representatives(ordered.size(),
+            i -> shingles(tokenizer, ordered.get(i).getQuestion(), ordered.get(i).getKeywords()));
+        return toClusters(representatives, ordered::get);
+    }
+
+    /**
+     * Clusters of near-duplicate entries of a knowledge index, from their compiled terms
+     */
+    static List<DuplicateCluster> findClusters(KnowledgeIndex index) {
+        int[] docs = preferenceOrder(index);
+        int[] representatives = representatives(docs.length, i -> shingles(index, docs[i]));
+        return toClusters(representatives, i -> index.getQA(docs[i]));
+    }
+
+    /**
+     * Position of the representative of every entry of an index, for collapsing duplicates
+     *
+     * @return representative by entry position, itself for most entries, or null if there are no duplicates
+     */
+    static int[] collapse(KnowledgeIndex index) {
+        int[] docs = preferenceOrder(index);
+        int[] representatives = representatives(docs.length, i -> shingles(index, docs[i]));
+        int[] byDoc = new int[docs.length];
+        boolean collapsed = false;
+        for (int i = 0; i < docs.length; i++) {
+            byDoc[docs[i]] = docs[representatives[i]];
+            collapsed |= representatives[i] != i;
+        }
+        return collapsed ? byDoc : null;
+    }
+
+    private static int[] preferenceOrder(KnowledgeIndex index) {
+        Comparator<Integer> preference = Comparator.comparing(doc -> index.getEntry(doc).getQA(), PREFERENCE);
+        return IntStream.range(0, index.size()).boxed()
+            .sorted(preference)
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    /**
+     * Cluster items given in preference order
+     * Each item joins the earliest cluster whose representative it is a
+     * near-duplicate of, or starts its own; a candidate that is only similar
+     * to another member does not pull the item in.
+     *
+     * @return for every item, the earliest item of its cluster
+     */
+    private static int[] representatives(int count, IntFunction<long[]> shingles) {
+        MinHashIndex index = new MinHashIndex(count);
+        int[] representatives = new int[count];
+        for (int i = 0; i < count; i++) {
+            int item = i;
+            representatives[item] = item;
+            index.add(shingles.apply(item), other -> {
+                int representative = representatives[other];
+                if (representative < representatives[item]
+                        && index.similarity(representative, item) >= MinHashIndex.SIMILARITY_THRESHOLD) {
+                    representatives[item] = representative;
+                }
+            });
+        }
+        return representatives;
+    }
+
+    private static List<DuplicateCluster> toClusters(int[] representatives, IntFunction<LegalQA> qa) {
+        // Members follow their representative in preference order
+        List<DuplicateCluster> clusters = new ArrayList<>();
+        int[] clusterOf = new int[representatives.length];
+        List<List<LegalQA>> members = new ArrayList<>();
+        Arrays.fill(clusterOf, -1);
+        for (int i = 0; i < representatives.length; i++) {
+            int representative = representatives[i];
+            if (representative == i) {
+                continue;
+            }
+            if (clusterOf[representative] < 0) {
+                clusterOf[representative] = members.size();
+                members.add(new ArrayList<>());
+                clusters.add(null);
+            }
+            members.get(clusterOf[representative]).add(qa.apply(i));
+        }
+        for (int i = 0; i < representatives.length; i++) {
+            if (clusterOf[i] >= 0) {
+                clusters.set(clusterOf[i], new DuplicateCluster(qa.apply(i), members.get(clusterOf[i])));
+            }
+        }
+        return clusters;
+    }
+
+    private static long[] shingles(Tokenizer tokenizer, String question, String keywords) {
+        LongStream.Builder hashes = LongStream.builder();
+        tokenizer.tokenize(question, (buffer, length) -> hashes.add(hash(buffer, length)));
+        tokenizer.tokenize(keywords, (buffer, length) -> hashes.add(hash(buffer, length)));
+        return hashes.build().distinct().toArray();
+    }
+
+    private static long[] shingles(KnowledgeIndex index, int doc) {
+        CompiledQA entry = index.getEntry(doc);
+        TermDictionary dictionary = index.getDictionary();
+        int[] questionTerms = entry.getQuestionTerms();
+        int[] keywordTerms = entry.getKeywordTerms();
+        return IntStream.concat(Arrays.stream(questionTerms), Arrays.stream(keywordTerms))
+            .mapToLong(term -> hash(dictionary.getTerm(term)))
+            .distinct()
+            .toArray();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a term, the same for a String and a char buffer
+     */
+    private static long hash(char[] buffer, int length) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ buffer[i]) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    private static long hash(String term) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < term.length(); i++) {
+            h = (h ^ term.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pocketlawyer.service;
+
+/**
+ * Size and search latency of one category partition of the knowledge base
+ */
+public class PartitionStats {
+    private final int categoryId;
+    private final String categoryName;
+    private final int entryCount;
+    private final long searchCount;
+    private final long totalSearchNanos;
+
+    public PartitionStats(int categoryId, String categoryName, int entryCount, long searchCount, long totalSearchNanos) {
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.entryCount = entryCount;
+        this.searchCount = searchCount;
+        this.totalSearchNanos = totalSearchNanos;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * Name from legal_categories, or null if the category is not listed there
+     */
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Number of routed or widened queries that scored this partition
+     */
+    public long getSearchCount() {
+        return searchCount;
+    }
+
+    public long getTotalSearchNanos() {
+        return totalSearchNanos;
+    }
+
+    public double getAverageSearchMillis() {
+        return searchCount == 0 ? 0.0 : totalSearchNanos / 1_000_000.0 / searchCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PartitionStats[category=%d, entries=%d, searches=%d, avgMillis=%.3f]",
+            categoryId, entryCount, searchCount, getAverageSearchMillis());
+    }
+}
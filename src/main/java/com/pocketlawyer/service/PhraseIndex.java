@@ -0,0 +1,383 @@
+package com.pocketlawyer.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton over multi-word phrases, labelled with term IDs
+ * Phrases are the multi-word entries of the keywords column and adjacent
+ * term pairs of each question. One pass over the query's term sequence
+ * reports every phrase it contains, and each phrase lists the entries it
+ * was taken from.
+ */
+final class PhraseIndex {
+
+    private static final int ROOT = 0;
+    private static final int NO_PHRASE = -1;
+    private static final int[] NO_DOCS = new int[0];
+
+    // Edges of node n are labels/targets[edgeStart[n], edgeStart[n + 1]), sorted by label
+    private final int[] edgeStart;
+    private final int[] labels;
+    private final int[] targets;
+
+    private final int[] fail;
+    // Phrase ending at a node, and the nearest node on its fail chain that ends one
+    private final int[] nodePhrase;
+    private final int[] outputLink;
+
+    // Indexed by phrase ID: entries containing it, in ascending order
+    private final int[][] postings;
+    // Indexed by entry: number of distinct phrases
+    private final int[] phraseCounts;
+
+    private PhraseIndex(int[] edgeStart, int[] labels, int[] targets, int[] nodePhrase,
+                        int[][] postings, int[] phraseCounts) {
+        this.edgeStart = edgeStart;
+        this.labels = labels;
+        this.targets = targets;
+        this.nodePhrase = nodePhrase;
+        this.postings = postings;
+        this.phraseCounts = phraseCounts;
+
+        int nodeCount = nodePhrase.length;
+        this.fail = new int[nodeCount];
+        this.outputLink = new int[nodeCount];
+        linkNodes();
+    }
+
+    /**
+     * Compute fail and output links breadth first, so parents are done before children
+     */
+    private void linkNodes() {
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            fail[targets[e]] = ROOT;
+            outputLink[targets[e]] = ROOT;
+            queue.add(targets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int child = targets[e];
+                int state = fail[node];
+                int next = step(state, labels[e]);
+                while (next < 0 && state != ROOT) {
+                    state = fail[state];
+                    next = step(state, labels[e]);
+                }
+                fail[child] = next < 0 ? ROOT : next;
+                outputLink[child] = nodePhrase[fail[child]] != NO_PHRASE ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Count, for every candidate entry, the distinct phrases of it found in the query
+     * Entries not yet among the candidates are added to them.
+     */
+    void match(QueryScratch scratch) {
+        match(scratch, 0, phraseCounts.length);
+    }
+
+    /**
+     * Record the distinct phrases of the query in the scratch without touching any entry
+     * They depend on word order, unlike the query's term set.
+     */
+    void findPhrases(QueryScratch scratch) {
+        match(scratch, 0, 0);
+    }
+
+    /**
+     * Same as match(scratch), limited to entries in [fromDoc, toDoc)
+     */
+    void match(QueryScratch scratch, int fromDoc, int toDoc) {
+        scratch.resetPhrases();
+        int[] sequence = scratch.sequence();
+        int state = ROOT;
+        for (int i = 0; i < scratch.sequenceLength(); i++) {
+            int term = sequence[i];
+            if (term == TermDictionary.UNKNOWN) {
+                state = ROOT;
+                continue;
+            }
+            int next = step(state, term);
+            while (next < 0 && state != ROOT) {
+                state = fail[state];
+                next = step(state, term);
+            }
+            state = next < 0 ? ROOT : next;
+
+            for (int node = nodePhrase[state] != NO_PHRASE ? state : outputLink[state];
+                 node != ROOT; node = outputLink[node]) {
+                int phrase = nodePhrase[node];
+                if (scratch.addPhrase(phrase)) {
+                    int[] docs = postings[phrase];
+                    for (int p = Postings.lowerBound(docs, fromDoc); p < docs.length && docs[p] < toDoc; p++) {
+                        scratch.addPhraseHit(scratch.slotOf(docs[p]));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Share of an entry's phrases that occur in the query, 0..1
+     */
+    double phraseScore(int doc, int phraseHits) {
+        return phraseCounts[doc] == 0 ? 0.0 : (double) phraseHits / phraseCounts[doc];
+    }
+
+    int phraseCount() {
+        return postings.length;
+    }
+
+    /**
+     * Write the trie and postings; fail and output links are recomputed on read
+     */
+    void write(IndexOutput out) throws IOException {
+        out.writeIntArray(edgeStart);
+        out.writeIntArray(labels);
+        out.writeIntArray(targets);
+        out.writeIntArray(nodePhrase);
+        out.writeIntArrays(postings);
+        out.writeIntArray(phraseCounts);
+    }
+
+    static PhraseIndex read(IndexInput in) throws IOException {
+        return new PhraseIndex(in.readIntArray(), in.readIntArray(), in.readIntArray(), in.readIntArray(),
+            in.readIntArrays(), in.readIntArray());
+    }
+
+    /**
+     * Combine the phrases of two indexes under new entry positions
+     * aMap and bMap give each entry's new position, or -1 to drop it, and must
+     * be increasing over the entries they keep. The two tries are merged node by
+     * node, so nothing is hashed; phrases left without entries are dropped.
+     */
+    static PhraseIndex merge(PhraseIndex a, int[] aMap, PhraseIndex b, int[] bMap, int documentCount) {
+        TrieMerge merge = new TrieMerge(a, aMap, b, bMap);
+        merge.mergeNode(ROOT, ROOT);
+
+        int[] phraseCounts = new int[documentCount];
+        for (int doc = 0; doc < a.phraseCounts.length; doc++) {
+            if (aMap[doc] >= 0) {
+                phraseCounts[aMap[doc]] = a.phraseCounts[doc];
+            }
+        }
+        for (int doc = 0; doc < b.phraseCounts.length; doc++) {
+            if (bMap[doc] >= 0) {
+                phraseCounts[bMap[doc]] = b.phraseCounts[doc];
+            }
+        }
+        return merge.build(phraseCounts);
+    }
+
+    private int step(int node, int term) {
+        int e = Arrays.binarySearch(labels, edgeStart[node], edgeStart[node + 1], term);
+        return e < 0 ? -1 : targets[e];
+    }
+
+    /**
+     * Depth-first merge of two tries; nodes are numbered in preorder and a
+     * subtree without phrases gives its numbers back
+     */
+    private static final class TrieMerge {
+        private final PhraseIndex a;
+        private final int[] aMap;
+        private final PhraseIndex b;
+        private final int[] bMap;
+
+        private int[] nodePhrase = new int[64];
+        private int nodeCount;
+        private final List<int[]> postings = new ArrayList<>();
+        // Edges as parallel arrays, grouped by source node when frozen
+        private int[] edgeNodes = new int[64];
+        private int[] edgeLabels = new int[64];
+        private int[] edgeTargets = new int[64];
+        private int edgeCount;
+
+        TrieMerge(PhraseIndex a, int[] aMap, PhraseIndex b, int[] bMap) {
+            this.a = a;
+            this.aMap = aMap;
+            this.b = b;
+            this.bMap = bMap;
+        }
+
+        /**
+         * Merge node aNode of a with node bNode of b, either -1 if absent
+         *
+         * @return the merged node, or -1 if neither subtree keeps a phrase
+         */
+        int mergeNode(int aNode, int bNode) {
+            int node = nodeCount++;
+            if (node == nodePhrase.length) {
+                nodePhrase = Arrays.copyOf(nodePhrase, node * 2);
+            }
+            int phraseCount = postings.size();
+            int firstEdge = edgeCount;
+
+            int[] docs = Postings.union(postingsOf(a, aNode, aMap), postingsOf(b, bNode, bMap));
+            nodePhrase[node] = docs.length == 0 ? NO_PHRASE : postings.size();
+            if (docs.length > 0) {
+                postings.add(docs);
+            }
+
+            int i = aNode < 0 ? 0 : a.edgeStart[aNode];
+            int iEnd = aNode < 0 ? 0 : a.edgeStart[aNode + 1];
+            int j = bNode < 0 ? 0 : b.edgeStart[bNode];
+            int jEnd = bNode < 0 ? 0 : b.edgeStart[bNode + 1];
+            while (i < iEnd || j < jEnd) {
+                int aLabel = i < iEnd ? a.labels[i] : Integer.MAX_VALUE;
+                int bLabel = j < jEnd ? b.labels[j] : Integer.MAX_VALUE;
+                int label = Math.min(aLabel, bLabel);
+                int child = mergeNode(aLabel == label ? a.targets[i++] : -1, bLabel == label ? b.targets[j++] : -1);
+                if (child >= 0) {
+                    addEdge(node, label, child);
+                }
+            }
+
+            if (node != ROOT && nodePhrase[node] == NO_PHRASE && edgeCount == firstEdge) {
+                nodeCount = node;
+                while (postings.size() > phraseCount) {
+                    postings.remove(postings.size() - 1);
+                }
+                return -1;
+            }
+            return node;
+        }
+
+        private static int[] postingsOf(PhraseIndex index, int node, int[] map) {
+            if (node < 0 || index.nodePhrase[node] == NO_PHRASE) {
+                return NO_DOCS;
+            }
+            int[] docs = index.postings[index.nodePhrase[node]];
+            int[] mapped = new int[docs.length];
+            int count = 0;
+            for (int doc : docs) {
+                if (map[doc] >= 0) {
+                    mapped[count++] = map[doc];
+                }
+            }
+            return count == docs.length ? mapped : Arrays.copyOf(mapped, count);
+        }
+
+        private void addEdge(int node, int label, int target) {
+            if (edgeCount == edgeNodes.length) {
+                edgeNodes = Arrays.copyOf(edgeNodes, edgeCount * 2);
+                edgeLabels = Arrays.copyOf(edgeLabels, edgeCount * 2);
+                edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+            }
+            edgeNodes[edgeCount] = node;
+            edgeLabels[edgeCount] = label;
+            edgeTargets[edgeCount++] = target;
+        }
+
+        PhraseIndex build(int[] phraseCounts) {
+            // Edges were added children first; place them by source node, keeping label order
+            int[] edgeStart = new int[nodeCount + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                edgeStart[edgeNodes[e] + 1]++;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                edgeStart[node + 1] += edgeStart[node];
+            }
+            int[] next = Arrays.copyOf(edgeStart, nodeCount);
+            int[] labels = new int[edgeCount];
+            int[] targets = new int[edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                int slot = next[edgeNodes[e]]++;
+                labels[slot] = edgeLabels[e];
+                targets[slot] = edgeTargets[e];
+            }
+            return new PhraseIndex(edgeStart, labels, targets, Arrays.copyOf(nodePhrase, nodeCount),
+                postings.toArray(new int[0][]), phraseCounts);
+        }
+    }
+
+    /**
+     * Inserts each entry's phrases into a trie, then freezes it into arrays
+     */
+    static final class Builder {
+        // Trie edges keyed by (node << 32 | term)
+        private final Map<Long, Integer> edges = new HashMap<>();
+        private final List<Integer> nodePhrase = new ArrayList<>();
+        private final List<List<Integer>> phraseDocs = new ArrayList<>();
+        private final List<Integer> phraseCounts = new ArrayList<>();
+
+        Builder() {
+            nodePhrase.add(NO_PHRASE);
+        }
+
+        /**
+         * Add the next entry's phrases as term ID sequences; sequences shorter than two are ignored
+         */
+        void addDocument(List<int[]> phrases) {
+            int doc = phraseCounts.size();
+            int count = 0;
+            for (int[] phrase : phrases) {
+                if (phrase.length < 2) {
+                    continue;
+                }
+                int node = ROOT;
+                for (int term : phrase) {
+                    long key = ((long) node << 32) | term;
+                    Integer next = edges.get(key);
+                    if (next == null) {
+                        next = nodePhrase.size();
+                        nodePhrase.add(NO_PHRASE);
+                        edges.put(key, next);
+                    }
+                    node = next;
+                }
+                if (nodePhrase.get(node) == NO_PHRASE) {
+                    nodePhrase.set(node, phraseDocs.size());
+                    phraseDocs.add(new ArrayList<>(2));
+                }
+                List<Integer> docs = phraseDocs.get(nodePhrase.get(node));
+                if (docs.isEmpty() || docs.get(docs.size() - 1) != doc) {
+                    docs.add(doc);
+                    count++;
+                }
+            }
+            phraseCounts.add(count);
+        }
+
+        PhraseIndex build() {
+            int nodeCount = nodePhrase.size();
+            long[] keys = new long[edges.size()];
+            int k = 0;
+            for (long key : edges.keySet()) {
+                keys[k++] = key;
+            }
+            Arrays.sort(keys);
+
+            int[] edgeStart = new int[nodeCount + 1];
+            int[] labels = new int[keys.length];
+            int[] targets = new int[keys.length];
+            for (int e = 0; e < keys.length; e++) {
+                edgeStart[(int) (keys[e] >>> 32) + 1]++;
+                labels[e] = (int) keys[e];
+                targets[e] = edges.get(keys[e]);
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                edgeStart[node + 1] += edgeStart[node];
+            }
+
+            int[][] postings = new int[phraseDocs.size()][];
+            for (int phrase = 0; phrase < postings.length; phrase++) {
+                postings[phrase] = phraseDocs.get(phrase).stream().mapToInt(Integer::intValue).toArray();
+            }
+            return new PhraseIndex(edgeStart, labels, targets,
+                nodePhrase.stream().mapToInt(Integer::intValue).toArray(),
+                postings, phraseCounts.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.pocketlawyer.service;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for posting lists: ascending arrays of entry positions
+ */
+final class Postings {
+
+    private Postings() {
+    }
+
+    /**
+     * Index of the first posting at or after doc, or the length if there is none
+     * Entries are ordered by category, so a partition's postings are the range
+     * between the lower bounds of its first entry and the next partition's.
+     */
+    static int lowerBound(int[] postings, int doc) {
+        int i = Arrays.binarySearch(postings, doc);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    /**
+     * Ascending positions found in either list
+     */
+    static int[] union(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return a.length == 0 ? b : a;
+        }
+        int[] merged = new int[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int next = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (count == 0 || merged[count - 1] != next) {
+                merged[count++] = next;
+            }
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+}
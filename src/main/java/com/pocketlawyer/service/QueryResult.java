@@ -0,0 +1,32 @@
+package com.pocketlawyer.service;
+
+/**
+ * Response to one query of a batch, with the time spent answering it
+ */
+public class QueryResult {
+    private final String query;
+    private final String response;
+    private final long elapsedNanos;
+
+    public QueryResult(String query, String response, long elapsedNanos) {
+        this.query = query;
+        this.response = response;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+}
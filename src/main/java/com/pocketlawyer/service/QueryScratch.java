@@ -0,0 +1,455 @@
+package com.pocketlawyer.service;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread reusable buffers for one query at a time
+ * Holding the query terms, candidate set, score accumulators, routing state
+ * and cache key buffer here keeps steady-state scoring free of allocations;
+ * a response only allocates its cache key String, and its answer on a cache
+ * miss. Buffers only grow when the knowledge base or a query gets larger than
+ * any seen before.
+ */
+final class QueryScratch implements Tokenizer.TermConsumer {
+
+    private static final char CORRECTED_MARK = '~';
+
+    private final Tokenizer tokenizer = new Tokenizer();
+    private KnowledgeIndex index;
+
+    // Sorted, de-duplicated IDs of the query terms known to the dictionary
+    private int[] terms = new int[16];
+    // corrected[t] is set when terms[t] was only reached by spelling correction
+    private boolean[] corrected = new boolean[16];
+    private int termCount;
+
+    // Distinct query terms missing from the dictionary, packed back to back
+    private char[] unknownChars = new char[64];
+    private int[] unknownEnds = new int[8];
+    private int unknownTermCount;
+
+    // Every query term in order, UNKNOWN where a term could not be resolved
+    private int[] sequence = new int[16];
+    private int sequenceLength;
+
+    // Distinct phrase IDs found in the query
+    private int[] phrases = new int[8];
+    private int phraseCount;
+
+    // Candidates in first-touch order, with a score slot each
+    private int[] candidates = new int[64];
+    private double[] scores = new double[64];
+    private int[] phraseHits = new int[64];
+    private int candidateCount;
+
+    // marks[doc] == epoch means doc is already a candidate, stored at slots[doc]
+    private int[] marks = new int[0];
+    private int[] slots = new int[0];
+    private int epoch;
+
+    // Rows of the edit distance matrix while verifying spelling corrections
+    private int[][] distanceRows = new int[3][32];
+    // Category posteriors of the query
+    private double[] posteriors = new double[16];
+
+    // Cache key being built, with the order of its words and phrases
+    private final StringBuilder key = new StringBuilder(64);
+    private int[] keyOrder = new int[16];
+    private int[] keyPhrases = new int[8];
+
+    // Routing of the current search: categories searched first and the partitions they cover,
+    // then every partition searched in order with the time spent scoring it
+    private int[] routedCategoryIds = new int[2];
+    private double[] routedProbabilities = new double[2];
+    private int routedCount;
+    private boolean[] routedPartitions = new boolean[0];
+    private int[] searchedCategoryIds = new int[8];
+    private long[] searchNanos = new long[8];
+    private int searchedCount;
+    private boolean widened;
+
+    /**
+     * Tokenize a query and resolve its terms against the index dictionary
+     * Terms missing from the dictionary are replaced by their closest spelling
+     * correction, if any.
+     */
+    void parseQuery(CharSequence query, KnowledgeIndex index) {
+        this.index = index;
+        termCount = 0;
+        unknownTermCount = 0;
+        sequenceLength = 0;
+        tokenizer.tokenize(query, this);
+        this.index = null;
+    }
+
+    @Override
+    public void accept(char[] buffer, int length) {
+        int termId = index.getDictionary().lookup(buffer, length);
+        boolean correction = false;
+        // Terms left behind by entries removed in a refresh are as good as unknown
+        if (termId == TermDictionary.UNKNOWN || index.getBm25Index().documentFrequency(termId) == 0) {
+            termId = index.getSpellingIndex().correct(buffer, length, this);
+            correction = true;
+        }
+        if (termId == TermDictionary.UNKNOWN) {
+            addUnknownTerm(buffer, length);
+        } else {
+            addTerm(termId, correction);
+        }
+        if (sequenceLength == sequence.length) {
+            sequence = Arrays.copyOf(sequence, sequenceLength * 2);
+        }
+        sequence[sequenceLength++] = termId;
+    }
+
+    /**
+     * Add a query term, keeping the term array sorted and unique
+     * A term also typed as indexed is not counted as corrected.
+     */
+    private void addTerm(int termId, boolean correction) {
+        int pos = termCount;
+        while (pos > 0 && terms[pos - 1] > termId) {
+            pos--;
+        }
+        if (pos > 0 && terms[pos - 1] == termId) {
+            corrected[pos - 1] &= correction;
+            return;
+        }
+        if (termCount == terms.length) {
+            terms = Arrays.copyOf(terms, termCount * 2);
+            corrected = Arrays.copyOf(corrected, termCount * 2);
+        }
+        System.arraycopy(terms, pos, terms, pos + 1, termCount - pos);
+        System.arraycopy(corrected, pos, corrected, pos + 1, termCount - pos);
+        terms[pos] = termId;
+        corrected[pos] = correction;
+        termCount++;
+    }
+
+    private void addUnknownTerm(char[] buffer, int length) {
+        int start = 0;
+        for (int t = 0; t < unknownTermCount; t++) {
+            int end = unknownEnds[t];
+            if (end - start == length && Arrays.equals(unknownChars, start, end, buffer, 0, length)) {
+                return;
+            }
+            start = end;
+        }
+        if (start + length > unknownChars.length) {
+            unknownChars = Arrays.copyOf(unknownChars, Math.max(unknownChars.length * 2, start + length));
+        }
+        if (unknownTermCount == unknownEnds.length) {
+            unknownEnds = Arrays.copyOf(unknownEnds, unknownTermCount * 2);
+        }
+        System.arraycopy(buffer, 0, unknownChars, start, length);
+        unknownEnds[unknownTermCount++] = start + length;
+    }
+
+    /**
+     * Canonical form of everything about the query that affects its response
+     * That is the scoring mode, the distinct terms, sorted and space-separated,
+     * and the sorted IDs of the phrases found by PhraseIndex.findPhrases, which
+     * must have run first. Queries differing only in repeats, punctuation or
+     * stop words share a key, and so do reorderings that keep the same phrases;
+     * "security deposit" and "deposit security" do not. The key is built in a
+     * reused buffer, so the returned String is the only allocation.
+     */
+    String canonicalKey(ScoringMode mode, TermDictionary dictionary) {
+        // Insertion sort of word indices; a query has a handful of words
+        int wordCount = termCount + unknownTermCount;
+        if (keyOrder.length < wordCount) {
+            keyOrder = new int[Math.max(wordCount, keyOrder.length * 2)];
+        }
+        for (int w = 0; w < wordCount; w++) {
+            int pos = w;
+            while (pos > 0 && compareWords(keyOrder[pos - 1], w, dictionary) > 0) {
+                keyOrder[pos] = keyOrder[pos - 1];
+                pos--;
+            }
+            keyOrder[pos] = w;
+        }
+        if (keyPhrases.length < phraseCount) {
+            keyPhrases = new int[Math.max(phraseCount, keyPhrases.length * 2)];
+        }
+        for (int p = 0; p < phraseCount; p++) {
+            int pos = p;
+            while (pos > 0 && keyPhrases[pos - 1] > phrases[p]) {
+                keyPhrases[pos] = keyPhrases[pos - 1];
+                pos--;
+            }
+            keyPhrases[pos] = phrases[p];
+        }
+
+        key.setLength(0);
+        key.append(mode.name()).append(':');
+        for (int w = 0; w < wordCount; w++) {
+            if (w > 0) {
+                key.append(' ');
+            }
+            for (int c = 0, length = wordLength(keyOrder[w], dictionary); c < length; c++) {
+                key.append(wordChar(keyOrder[w], c, dictionary));
+            }
+        }
+        key.append('|');
+        for (int p = 0; p < phraseCount; p++) {
+            key.append(p > 0 ? "," : "").append(keyPhrases[p]);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Compare two key words by their chars; words number the known terms, then the unknown ones
+     */
+    private int compareWords(int a, int b, TermDictionary dictionary) {
+        int aLength = wordLength(a, dictionary);
+        int bLength = wordLength(b, dictionary);
+        for (int c = 0; c < Math.min(aLength, bLength); c++) {
+            int diff = wordChar(a, c, dictionary) - wordChar(b, c, dictionary);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    private int wordLength(int word, TermDictionary dictionary) {
+        if (word < termCount) {
+            // Corrected terms are marked, as they score lower than the same term typed as indexed
+            return dictionary.getTerm(terms[word]).length() + (corrected[word] ? 1 : 0);
+        }
+        int u = word - termCount;
+        return unknownEnds[u] - (u == 0 ? 0 : unknownEnds[u - 1]);
+    }
+
+    private char wordChar(int word, int c, TermDictionary dictionary) {
+        if (word < termCount) {
+            String term = dictionary.getTerm(terms[word]);
+            return c < term.length() ? term.charAt(c) : CORRECTED_MARK;
+        }
+        int u = word - termCount;
+        return unknownChars[(u == 0 ? 0 : unknownEnds[u - 1]) + c];
+    }
+
+    int[] terms() {
+        return terms;
+    }
+
+    int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Scoring weight of terms[t]: 1, or SpellingIndex.CORRECTED_TERM_WEIGHT for a corrected term
+     */
+    double termWeight(int t) {
+        return corrected[t] ? SpellingIndex.CORRECTED_TERM_WEIGHT : 1.0;
+    }
+
+    int unknownTermCount() {
+        return unknownTermCount;
+    }
+
+    int[] sequence() {
+        return sequence;
+    }
+
+    int sequenceLength() {
+        return sequenceLength;
+    }
+
+    /**
+     * Record a phrase found in the query
+     *
+     * @return false if it was already found earlier in the same query
+     */
+    boolean addPhrase(int phrase) {
+        for (int p = 0; p < phraseCount; p++) {
+            if (phrases[p] == phrase) {
+                return false;
+            }
+        }
+        if (phraseCount == phrases.length) {
+            phrases = Arrays.copyOf(phrases, phraseCount * 2);
+        }
+        phrases[phraseCount++] = phrase;
+        return true;
+    }
+
+    /**
+     * Start collecting candidates for an index of the given size
+     */
+    void resetCandidates(int documentCount) {
+        if (marks.length < documentCount) {
+            marks = new int[documentCount];
+            slots = new int[documentCount];
+            epoch = 0;
+        }
+        if (++epoch == 0) {
+            Arrays.fill(marks, 0);
+            epoch = 1;
+        }
+        candidateCount = 0;
+    }
+
+    /**
+     * Forget the phrases found so far, before matching phrases again
+     */
+    void resetPhrases() {
+        phraseCount = 0;
+    }
+
+    /**
+     * Get the score slot of a document, registering it as a candidate on first touch
+     */
+    int slotOf(int doc) {
+        if (marks[doc] == epoch) {
+            return slots[doc];
+        }
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+            scores = Arrays.copyOf(scores, candidateCount * 2);
+            phraseHits = Arrays.copyOf(phraseHits, candidateCount * 2);
+        }
+        int slot = candidateCount++;
+        marks[doc] = epoch;
+        slots[doc] = slot;
+        candidates[slot] = doc;
+        scores[slot] = 0.0;
+        phraseHits[slot] = 0;
+        return slot;
+    }
+
+    int candidateCount() {
+        return candidateCount;
+    }
+
+    int candidate(int slot) {
+        return candidates[slot];
+    }
+
+    double score(int slot) {
+        return scores[slot];
+    }
+
+    void setScore(int slot, double value) {
+        scores[slot] = value;
+    }
+
+    void addScore(int slot, double value) {
+        scores[slot] += value;
+    }
+
+    int phraseHits(int slot) {
+        return phraseHits[slot];
+    }
+
+    void addPhraseHit(int slot) {
+        phraseHits[slot]++;
+    }
+
+    /**
+     * Multiply the scores of slots from firstSlot onwards
+     */
+    void scaleScores(int firstSlot, double factor) {
+        for (int slot = firstSlot; slot < candidateCount; slot++) {
+            scores[slot] *= factor;
+        }
+    }
+
+    /**
+     * Three rows of at least length ints for an edit distance, holding whatever they held before
+     */
+    int[][] distanceRows(int length) {
+        if (distanceRows[0].length < length) {
+            for (int row = 0; row < distanceRows.length; row++) {
+                distanceRows[row] = new int[Math.max(length, distanceRows[row].length * 2)];
+            }
+        }
+        return distanceRows;
+    }
+
+    /**
+     * At least count doubles for category posteriors, holding whatever they held before
+     */
+    double[] posteriors(int count) {
+        if (posteriors.length < count) {
+            posteriors = new double[Math.max(count, posteriors.length * 2)];
+        }
+        return posteriors;
+    }
+
+    /**
+     * Start routing a search over an index with the given number of partitions
+     */
+    void resetRouting(int partitionCount) {
+        if (routedPartitions.length < partitionCount) {
+            routedPartitions = new boolean[partitionCount];
+        } else {
+            Arrays.fill(routedPartitions, 0, partitionCount, false);
+        }
+        routedCount = 0;
+        searchedCount = 0;
+        widened = false;
+    }
+
+    /**
+     * Route the search to a category's partition first
+     */
+    void addRoute(int categoryId, double probability, int partition) {
+        if (routedCount == routedCategoryIds.length) {
+            routedCategoryIds = Arrays.copyOf(routedCategoryIds, routedCount * 2);
+            routedProbabilities = Arrays.copyOf(routedProbabilities, routedCount * 2);
+        }
+        routedCategoryIds[routedCount] = categoryId;
+        routedProbabilities[routedCount++] = probability;
+        routedPartitions[partition] = true;
+    }
+
+    int routedCount() {
+        return routedCount;
+    }
+
+    int routedCategoryId(int route) {
+        return routedCategoryIds[route];
+    }
+
+    double routedProbability(int route) {
+        return routedProbabilities[route];
+    }
+
+    boolean isRouted(int partition) {
+        return routedPartitions[partition];
+    }
+
+    /**
+     * Record the time spent scoring one partition of the search
+     */
+    void recordSearch(int categoryId, long nanos) {
+        if (searchedCount == searchedCategoryIds.length) {
+            searchedCategoryIds = Arrays.copyOf(searchedCategoryIds, searchedCount * 2);
+            searchNanos = Arrays.copyOf(searchNanos, searchedCount * 2);
+        }
+        searchedCategoryIds[searchedCount] = categoryId;
+        searchNanos[searchedCount++] = nanos;
+    }
+
+    int searchedCount() {
+        return searchedCount;
+    }
+
+    int searchedCategoryId(int search) {
+        return searchedCategoryIds[search];
+    }
+
+    long searchNanos(int search) {
+        return searchNanos[search];
+    }
+
+    void setWidened(boolean widened) {
+        this.widened = widened;
+    }
+
+    boolean isWidened() {
+        return widened;
+    }
+}
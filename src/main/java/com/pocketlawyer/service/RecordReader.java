@@ -0,0 +1,19 @@
+package com.pocketlawyer.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Streams the records of an import file one at a time as column name to value maps
+ * Column names are lower case; a missing or null value has no entry or a null value.
+ */
+interface RecordReader extends Closeable {
+
+    /**
+     * Next record, or null at the end of the input
+     *
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    Map<String, String> next() throws IOException;
+}
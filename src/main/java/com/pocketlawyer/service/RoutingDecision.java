@@ -0,0 +1,79 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How one query was routed across category partitions, and what it matched
+ */
+public class RoutingDecision {
+    private final List<Integer> routedCategoryIds;
+    private final List<Double> routedProbabilities;
+    private final boolean widened;
+    private final Map<Integer, Long> partitionNanos;
+    private final LegalQA match;
+    private final double bestScore;
+
+    public RoutingDecision(List<Integer> routedCategoryIds, List<Double> routedProbabilities, boolean widened,
+                           Map<Integer, Long> partitionNanos, LegalQA match, double bestScore) {
+        this.routedCategoryIds = Collections.unmodifiableList(routedCategoryIds);
+        this.routedProbabilities = Collections.unmodifiableList(routedProbabilities);
+        this.widened = widened;
+        this.partitionNanos = Collections.unmodifiableMap(partitionNanos);
+        this.match = match;
+        this.bestScore = bestScore;
+    }
+
+    /**
+     * Categories searched first, most probable first; empty if the query was not routed
+     */
+    public List<Integer> getRoutedCategoryIds() {
+        return routedCategoryIds;
+    }
+
+    /**
+     * Classifier probabilities of the routed categories
+     */
+    public List<Double> getRoutedProbabilities() {
+        return routedProbabilities;
+    }
+
+    public boolean isRouted() {
+        return !routedCategoryIds.isEmpty();
+    }
+
+    /**
+     * True if no routed entry reached the threshold and every category was searched
+     */
+    public boolean isWidened() {
+        return widened;
+    }
+
+    /**
+     * Time spent scoring each searched partition, by category_id in search order
+     * Empty for queries searched across every category without routing.
+     */
+    public Map<Integer, Long> getPartitionNanos() {
+        return partitionNanos;
+    }
+
+    /**
+     * Best match reaching the threshold, or null
+     */
+    public LegalQA getMatch() {
+        return match;
+    }
+
+    public double getBestScore() {
+        return bestScore;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RoutingDecision[routed=%s, widened=%b, partitionNanos=%s, bestScore=%.3f]",
+            routedCategoryIds, widened, partitionNanos, bestScore);
+    }
+}
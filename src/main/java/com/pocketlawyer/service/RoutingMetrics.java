@@ -0,0 +1,59 @@
+package com.pocketlawyer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routing counters and per-partition search latency of one knowledge base snapshot
+ */
+final class RoutingMetrics {
+
+    private final LongAdder routedQueries = new LongAdder();
+    private final LongAdder widenedQueries = new LongAdder();
+    private final LongAdder globalQueries = new LongAdder();
+    // Indexed by partition
+    private final LongAdder[] searches;
+    private final LongAdder[] searchNanos;
+
+    RoutingMetrics(int partitionCount) {
+        searches = new LongAdder[partitionCount];
+        searchNanos = new LongAdder[partitionCount];
+        for (int p = 0; p < partitionCount; p++) {
+            searches[p] = new LongAdder();
+            searchNanos[p] = new LongAdder();
+        }
+    }
+
+    void recordQuery(boolean routed, boolean widened) {
+        if (!routed) {
+            globalQueries.increment();
+        } else if (widened) {
+            widenedQueries.increment();
+        } else {
+            routedQueries.increment();
+        }
+    }
+
+    void recordSearch(int partition, long nanos) {
+        searches[partition].increment();
+        searchNanos[partition].add(nanos);
+    }
+
+    RoutingStats getStats(KnowledgeIndex index) {
+        List<PartitionStats> partitions = new ArrayList<>(searches.length);
+        CategoryClassifier classifier = index.getClassifier();
+        for (int p = 0; p < searches.length; p++) {
+            int categoryId = index.getPartitionCategoryId(p);
+            String name = null;
+            for (int c = 0; c < classifier.categoryCount(); c++) {
+                if (classifier.getCategoryId(c) == categoryId) {
+                    name = classifier.getCategoryName(c);
+                }
+            }
+            partitions.add(new PartitionStats(categoryId, name,
+                index.getPartitionEnd(p) - index.getPartitionStart(p), searches[p].sum(), searchNanos[p].sum()));
+        }
+        return new RoutingStats(routedQueries.sum(), widenedQueries.sum(), globalQueries.sum(), partitions);
+    }
+}
@@ -0,0 +1,52 @@
+package com.pocketlawyer.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point-in-time snapshot of category routing counters
+ */
+public class RoutingStats {
+    private final long routedCount;
+    private final long widenedCount;
+    private final long globalCount;
+    private final List<PartitionStats> partitions;
+
+    public RoutingStats(long routedCount, long widenedCount, long globalCount, List<PartitionStats> partitions) {
+        this.routedCount = routedCount;
+        this.widenedCount = widenedCount;
+        this.globalCount = globalCount;
+        this.partitions = Collections.unmodifiableList(partitions);
+    }
+
+    /**
+     * Queries answered from their predicted categories alone
+     */
+    public long getRoutedCount() {
+        return routedCount;
+    }
+
+    /**
+     * Queries routed first, then widened to every category for lack of a good match
+     */
+    public long getWidenedCount() {
+        return widenedCount;
+    }
+
+    /**
+     * Queries searched across every category without routing
+     */
+    public long getGlobalCount() {
+        return globalCount;
+    }
+
+    public List<PartitionStats> getPartitions() {
+        return partitions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RoutingStats[routed=%d, widened=%d, global=%d, partitions=%s]",
+            routedCount, widenedCount, globalCount, partitions);
+    }
+}
@@ -0,0 +1,63 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+/**
+ * A ranked Q&A match with the individual factors behind its score
+ * In JACCARD mode the keyword and question factors are set overlaps; in
+ * BM25 mode they are the per-field shares of the normalized BM25 relevance,
+ * together with the answer field share.
+ */
+public class ScoredMatch {
+    private final LegalQA qa;
+    private final double score;
+    private final double keywordScore;
+    private final double questionScore;
+    private final double answerScore;
+    private final double phraseScore;
+    private final double priorityBoost;
+
+    public ScoredMatch(LegalQA qa, double score, double keywordScore, double questionScore,
+                       double answerScore, double phraseScore, double priorityBoost) {
+        this.qa = qa;
+        this.score = score;
+        this.keywordScore = keywordScore;
+        this.questionScore = questionScore;
+        this.answerScore = answerScore;
+        this.phraseScore = phraseScore;
+        this.priorityBoost = priorityBoost;
+    }
+
+    public LegalQA getQA() {
+        return qa;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public double getKeywordScore() {
+        return keywordScore;
+    }
+
+    public double getQuestionScore() {
+        return questionScore;
+    }
+
+    public double getAnswerScore() {
+        return answerScore;
+    }
+
+    public double getPhraseScore() {
+        return phraseScore;
+    }
+
+    public double getPriorityBoost() {
+        return priorityBoost;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.3f %s", score, qa.getQuestion());
+    }
+}
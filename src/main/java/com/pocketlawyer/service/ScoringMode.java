@@ -0,0 +1,11 @@
+package com.pocketlawyer.service;
+
+/**
+ * Ranking strategy used by the chatbot engine
+ */
+public enum ScoringMode {
+    /** Jaccard overlap of keyword and question-token sets (original scorer) */
+    JACCARD,
+    /** BM25F over question, keywords and answer fields, weighting rare terms higher */
+    BM25
+}
@@ -0,0 +1,52 @@
+package com.pocketlawyer.service;
+
+/**
+ * Metrics of the knowledge base snapshot currently serving queries
+ */
+public class SnapshotStats {
+    private final long version;
+    private final int entryCount;
+    private final int termCount;
+    private final long buildMillis;
+    private final long publishedAt;
+
+    public SnapshotStats(long version, int entryCount, int termCount, long buildMillis, long publishedAt) {
+        this.version = version;
+        this.entryCount = entryCount;
+        this.termCount = termCount;
+        this.buildMillis = buildMillis;
+        this.publishedAt = publishedAt;
+    }
+
+    /**
+     * Increases by one with every published snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * Time spent loading and indexing the knowledge base for this snapshot
+     */
+    public long getBuildMillis() {
+        return buildMillis;
+    }
+
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SnapshotStats[version=%d, entries=%d, terms=%d, buildMillis=%d]",
+            version, entryCount, termCount, buildMillis);
+    }
+}
@@ -0,0 +1,279 @@
+package com.pocketlawyer.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * SymSpell deletes index for correcting misspelled query terms
+ * Every dictionary term contributes the strings obtained by deleting up to
+ * MAX_DISTANCE characters from its prefix. A misspelled term generates its own
+ * deletes and only terms sharing one of them are verified with an edit distance,
+ * so a lookup never scans the vocabulary. Deletes are stored by hash only;
+ * collisions merely add candidates that fail verification.
+ * <p>
+ * A correction is a guess, so scorers weigh corrected terms by
+ * CORRECTED_TERM_WEIGHT, and common words are neither corrected nor offered
+ * as corrections.
+ */
+final class SpellingIndex {
+
+    // Weight of a corrected query term relative to one typed as indexed
+    static final double CORRECTED_TERM_WEIGHT = 0.5;
+
+    private static final int MAX_DISTANCE = 2;
+    private static final int PREFIX_LENGTH = 7;
+    // Terms this short only get one edit, otherwise almost anything would match
+    private static final int SHORT_TERM_LENGTH = 5;
+
+    // Everyday words beyond the tokenizer's stop words; "please" is not a misspelled "lease"
+    private static final TermDictionary COMMON_WORDS = new TermDictionary();
+    static {
+        for (String word : Arrays.asList(
+                "about", "above", "after", "again", "against", "all", "also", "and", "any",
+                "because", "before", "below", "between", "both", "but", "each", "from", "get",
+                "got", "here", "into", "just", "know", "like", "more", "most", "much", "must",
+                "need", "not", "now", "off", "once", "only", "other", "out", "over", "please",
+                "same", "some", "such", "tell", "than", "then", "there", "too", "under",
+                "until", "very", "want", "while", "without")) {
+            COMMON_WORDS.intern(word);
+        }
+    }
+
+    private final TermDictionary dictionary;
+    private final IntUnaryOperator documentFrequency;
+
+    // Sorted distinct delete hashes; term IDs of keys[i] are terms[offsets[i], offsets[i + 1])
+    private final int[] keys;
+    private final int[] offsets;
+    private final int[] terms;
+
+    static SpellingIndex build(TermDictionary dictionary, IntUnaryOperator documentFrequency) {
+        long[] pairs = deletePairs(dictionary, documentFrequency, 0);
+        return fromPairs(dictionary, documentFrequency, pairs, pairs.length);
+    }
+
+    /**
+     * Index of a dictionary made by adding terms to this index's dictionary
+     * Only the added terms' deletes are generated, and merged into the
+     * existing ones without sorting them again. Deletes of terms no longer
+     * found in any entry are dropped, as a build would not generate them.
+     */
+    SpellingIndex withAddedTerms(TermDictionary extended, IntUnaryOperator documentFrequency) {
+        long[] added = deletePairs(extended, documentFrequency, dictionary.size());
+        long[] pairs = new long[terms.length + added.length];
+        int pairCount = 0;
+        int a = 0;
+        for (int k = 0; k < keys.length; k++) {
+            for (int i = offsets[k]; i < offsets[k + 1]; i++) {
+                if (documentFrequency.applyAsInt(terms[i]) == 0) {
+                    continue;
+                }
+                long pair = ((long) keys[k] << 32) | terms[i];
+                while (a < added.length && added[a] < pair) {
+                    pairs[pairCount++] = added[a++];
+                }
+                pairs[pairCount++] = pair;
+            }
+        }
+        while (a < added.length) {
+            pairs[pairCount++] = added[a++];
+        }
+        return fromPairs(extended, documentFrequency, pairs, pairCount);
+    }
+
+    /**
+     * Deletes of the live terms from fromTerm on, as (hash, term) pairs packed into longs and sorted
+     */
+    private static long[] deletePairs(TermDictionary dictionary, IntUnaryOperator documentFrequency, int fromTerm) {
+        // Pack (hash, term) pairs into longs so one sort groups them by hash
+        long[] pairs = new long[64];
+        int pairCount = 0;
+        for (int term = fromTerm; term < dictionary.size(); term++) {
+            if (documentFrequency.applyAsInt(term) == 0) {
+                continue;
+            }
+            char[] chars = dictionary.getTerm(term).toCharArray();
+            int prefix = Math.min(chars.length, PREFIX_LENGTH);
+            int maxDistance = maxDistance(chars.length);
+            for (int i = -1; i < prefix; i++) {
+                for (int j = i; j < prefix; j++) {
+                    if ((i >= 0 ? 1 : 0) + (j > i ? 1 : 0) > maxDistance) {
+                        continue;
+                    }
+                    if (pairCount == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, pairCount * 2);
+                    }
+                    pairs[pairCount++] = ((long) deleteHash(chars, prefix, i, j) << 32) | term;
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+        return Arrays.copyOf(pairs, pairCount);
+    }
+
+    /**
+     * Group sorted (hash, term) pairs by hash, skipping repeated pairs
+     */
+    private static SpellingIndex fromPairs(TermDictionary dictionary, IntUnaryOperator documentFrequency,
+                                           long[] pairs, int pairCount) {
+        int[] keys = new int[pairCount];
+        int[] offsets = new int[pairCount + 1];
+        int[] terms = new int[pairCount];
+        int keyCount = 0;
+        int termCount = 0;
+        for (int p = 0; p < pairCount; p++) {
+            if (p > 0 && pairs[p] == pairs[p - 1]) {
+                continue;
+            }
+            int hash = (int) (pairs[p] >> 32);
+            if (keyCount == 0 || keys[keyCount - 1] != hash) {
+                keys[keyCount] = hash;
+                offsets[keyCount++] = termCount;
+            }
+            terms[termCount++] = (int) pairs[p];
+        }
+        offsets[keyCount] = termCount;
+
+        return new SpellingIndex(dictionary, documentFrequency, Arrays.copyOf(keys, keyCount),
+            Arrays.copyOf(offsets, keyCount + 1), Arrays.copyOf(terms, termCount));
+    }
+
+    private SpellingIndex(TermDictionary dictionary, IntUnaryOperator documentFrequency,
+                          int[] keys, int[] offsets, int[] terms) {
+        this.dictionary = dictionary;
+        this.documentFrequency = documentFrequency;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.terms = terms;
+    }
+
+    void write(IndexOutput out) throws IOException {
+        out.writeIntArray(keys);
+        out.writeIntArray(offsets);
+        out.writeIntArray(terms);
+    }
+
+    static SpellingIndex read(IndexInput in, TermDictionary dictionary, IntUnaryOperator documentFrequency)
+            throws IOException {
+        return new SpellingIndex(dictionary, documentFrequency, in.readIntArray(), in.readIntArray(),
+            in.readIntArray());
+    }
+
+    /**
+     * Find the known term closest to the misspelled term in buffer[0, length)
+     * Prefers the smallest edit distance, then the term found in most entries,
+     * then the alphabetically first; terms found in no entry and common words
+     * are skipped. Common words and terms containing digits are never corrected.
+     *
+     * @param scratch buffers of the query being parsed, reused for the edit distances
+     * @return term ID, or TermDictionary.UNKNOWN if nothing is within reach
+     */
+    int correct(char[] buffer, int length, QueryScratch scratch) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] < 'a' || buffer[i] > 'z') {
+                return TermDictionary.UNKNOWN;
+            }
+        }
+        if (COMMON_WORDS.lookup(buffer, length) != TermDictionary.UNKNOWN) {
+            return TermDictionary.UNKNOWN;
+        }
+
+        int maxDistance = maxDistance(length);
+        int prefix = Math.min(length, PREFIX_LENGTH);
+        int best = TermDictionary.UNKNOWN;
+        int bestDistance = maxDistance + 1;
+        int bestFrequency = 0;
+
+        for (int i = -1; i < prefix; i++) {
+            for (int j = i; j < prefix; j++) {
+                if ((i >= 0 ? 1 : 0) + (j > i ? 1 : 0) > maxDistance) {
+                    continue;
+                }
+                int k = Arrays.binarySearch(keys, deleteHash(buffer, prefix, i, j));
+                if (k < 0) {
+                    continue;
+                }
+                for (int p = offsets[k]; p < offsets[k + 1]; p++) {
+                    int term = terms[p];
+                    int frequency = documentFrequency.applyAsInt(term);
+                    if (frequency == 0 || COMMON_WORDS.lookup(dictionary.getTerm(term)) != TermDictionary.UNKNOWN) {
+                        continue;
+                    }
+                    int distance = distance(buffer, length, dictionary.getTerm(term),
+                        Math.min(bestDistance, maxDistance), scratch);
+                    if (distance > maxDistance || distance > bestDistance) {
+                        continue;
+                    }
+                    // Full ties go to the alphabetically first term, which unlike its ID a patch cannot change
+                    if (distance < bestDistance || frequency > bestFrequency || (frequency == bestFrequency
+                            && dictionary.getTerm(term).compareTo(dictionary.getTerm(best)) < 0)) {
+                        best = term;
+                        bestDistance = distance;
+                        bestFrequency = frequency;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int maxDistance(int length) {
+        return length <= SHORT_TERM_LENGTH ? 1 : MAX_DISTANCE;
+    }
+
+    /**
+     * Hash of chars[0, prefix) with positions i and j removed (-1 or i == j removes fewer)
+     * Uses the String.hashCode polynomial so build and query hashes agree.
+     */
+    private static int deleteHash(char[] chars, int prefix, int i, int j) {
+        int h = 0;
+        for (int p = 0; p < prefix; p++) {
+            if (p != i && p != j) {
+                h = 31 * h + chars[p];
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Optimal string alignment distance, or limit + 1 once it is known to exceed limit
+     */
+    private static int distance(char[] a, int aLength, String b, int limit, QueryScratch scratch) {
+        int bLength = b.length();
+        if (Math.abs(aLength - bLength) > limit) {
+            return limit + 1;
+        }
+
+        // Only cells [0, bLength] are used, each written before it is read
+        int[][] rows = scratch.distanceRows(bLength + 1);
+        int[] previous2 = rows[0];
+        int[] previous = rows[1];
+        int[] current = rows[2];
+        for (int j = 0; j <= bLength; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= aLength; i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= bLength; j++) {
+                int cost = a[i - 1] == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a[i - 1] == b.charAt(j - 2) && a[i - 2] == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[bLength];
+    }
+}
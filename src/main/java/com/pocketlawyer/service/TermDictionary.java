@@ -0,0 +1,168 @@
+package com.pocketlawyer.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Maps every knowledge base term to a dense int ID
+ * Open-addressing table that can be probed with a char buffer, so the
+ * tokenizer resolves query terms without creating Strings. Terms are
+ * interned while the index is built; afterwards the dictionary is only
+ * read, so lookups are safe from any number of query threads.
+ */
+final class TermDictionary {
+
+    static final int UNKNOWN = -1;
+
+    private String[] terms = new String[64];
+    private int[] hashes = new int[64];
+    // Slot holds id + 1; zero marks an empty slot
+    private int[] table = new int[128];
+    private int size;
+
+    /**
+     * Get the ID of a term, assigning the next free ID if it is new
+     */
+    int intern(String term) {
+        int id = lookup(term);
+        return id != UNKNOWN ? id : add(term, hash(term));
+    }
+
+    /**
+     * Get the ID of the term in buffer[0, length), assigning a new ID if needed
+     */
+    int intern(char[] buffer, int length) {
+        int id = lookup(buffer, length);
+        return id != UNKNOWN ? id : add(new String(buffer, 0, length), hash(buffer, length));
+    }
+
+    /**
+     * Get the ID of a term, or UNKNOWN if it never occurs in the knowledge base
+     */
+    int lookup(String term) {
+        int hash = hash(term);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && terms[id].equals(term)) {
+                return id;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Get the ID of the term in buffer[0, length), or UNKNOWN
+     */
+    int lookup(char[] buffer, int length) {
+        int hash = hash(buffer, length);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && matches(terms[id], buffer, length)) {
+                return id;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Independent dictionary with the same terms and IDs, free to intern more
+     */
+    TermDictionary copy() {
+        TermDictionary copy = new TermDictionary();
+        copy.terms = Arrays.copyOf(terms, terms.length);
+        copy.hashes = Arrays.copyOf(hashes, hashes.length);
+        copy.table = Arrays.copyOf(table, table.length);
+        copy.size = size;
+        return copy;
+    }
+
+    String getTerm(int id) {
+        return terms[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Write the terms in ID order; the hash table is rebuilt on read
+     */
+    void write(IndexOutput out) throws IOException {
+        out.writeInt(size);
+        for (int id = 0; id < size; id++) {
+            out.writeString(terms[id]);
+        }
+    }
+
+    static TermDictionary read(IndexInput in) throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        int size = in.readCount(Integer.BYTES);
+        for (int id = 0; id < size; id++) {
+            dictionary.intern(in.readString());
+        }
+        return dictionary;
+    }
+
+    private int add(String term, int hash) {
+        if (size == terms.length) {
+            terms = Arrays.copyOf(terms, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        terms[id] = term;
+        hashes[id] = hash;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            place(id);
+        }
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int id = 0; id < size; id++) {
+            place(id);
+        }
+    }
+
+    private void place(int id) {
+        int mask = table.length - 1;
+        int slot = hashes[id] & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private static boolean matches(String term, char[] buffer, int length) {
+        if (term.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (term.charAt(i) != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same polynomial as String.hashCode, spread so linear probing stays short
+    private static int hash(String term) {
+        return spread(term.hashCode());
+    }
+
+    private static int hash(char[] buffer, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + buffer[i];
+        }
+        return spread(h);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
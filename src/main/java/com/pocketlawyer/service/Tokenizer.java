@@ -0,0 +1,73 @@
+package com.pocketlawyer.service;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass tokenizer shared by index-time and query-time processing
+ * Lowercases, treats every character other than a-z / 0-9 as a separator,
+ * and drops stop words and terms shorter than three characters, all in one
+ * pass without regular expressions. Terms are handed out as a reused char
+ * buffer, so an instance must only be used by one thread at a time.
+ */
+final class Tokenizer {
+
+    /**
+     * Receives each term as buffer[0, length); the buffer is reused after the call returns
+     */
+    interface TermConsumer {
+        void accept(char[] buffer, int length);
+    }
+
+    private static final int MIN_TERM_LENGTH = 3;
+
+    // Common stop words to ignore during matching
+    private static final TermDictionary STOP_WORDS = new TermDictionary();
+    static {
+        for (String word : Arrays.asList(
+                "a", "an", "the", "is", "are", "was", "were", "be", "been", "being",
+                "have", "has", "had", "do", "does", "did", "will", "would", "should",
+                "could", "may", "might", "can", "i", "you", "he", "she", "it", "we",
+                "they", "what", "which", "who", "when", "where", "why", "how", "my",
+                "your", "his", "her", "its", "our", "their", "this", "that", "these",
+                "those", "am", "to", "of", "in", "for", "on", "with", "as", "by", "at")) {
+            STOP_WORDS.intern(word);
+        }
+    }
+
+    private char[] buffer = new char[32];
+
+    /**
+     * Emit every meaningful term of the text in order, including repeats
+     */
+    void tokenize(CharSequence text, TermConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+        int length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (isTermChar(c)) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                }
+                buffer[length++] = c;
+            } else if (length > 0) {
+                emit(consumer, length);
+                length = 0;
+            }
+        }
+        if (length > 0) {
+            emit(consumer, length);
+        }
+    }
+
+    private void emit(TermConsumer consumer, int length) {
+        if (length >= MIN_TERM_LENGTH && STOP_WORDS.lookup(buffer, length) == TermDictionary.UNKNOWN) {
+            consumer.accept(buffer, length);
+        }
+    }
+
+    private static boolean isTermChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+}
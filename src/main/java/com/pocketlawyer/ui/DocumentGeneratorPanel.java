@@ -16,6 +16,9 @@ import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Document generator panel for creating legal documents
@@ -23,6 +26,8 @@ import java.util.Map;
 public class DocumentGeneratorPanel extends JPanel {
     
     private static final Logger logger = LoggerFactory.getLogger(DocumentGeneratorPanel.class);
+    // Runs completions of asynchronous DAO calls on the event dispatch thread
+    private static final Executor EDT = SwingUtilities::invokeLater;
     
     private JComboBox<DocumentTemplate> templateComboBox;
     private JPanel fieldsPanel;
@@ -33,6 +38,7 @@ public class DocumentGeneratorPanel extends JPanel {
     private DocumentTemplateDAO templateDAO;
     private DocumentGenerator documentGenerator;
     private Map<String, JTextField> fieldInputs;
+    private CompletableFuture<String> contentRequest;
     
     public DocumentGeneratorPanel() {
         this.templateDAO = new DocumentTemplateDAO();
@@ -137,40 +143,29 @@ public class DocumentGeneratorPanel extends JPanel {
      * Load templates from database
      */
     private void loadTemplates() {
-        SwingWorker<List<DocumentTemplate>, Void> worker = new SwingWorker<List<DocumentTemplate>, Void>() {
-            @Override
-            protected List<DocumentTemplate> doInBackground() {
-                return templateDAO.getAllTemplates();
+        templateDAO.getAllTemplatesAsync().whenCompleteAsync((templates, error) -> {
+            if (error != null) {
+                logger.error("Error loading templates", error);
+                JOptionPane.showMessageDialog(
+                    DocumentGeneratorPanel.this,
+                    "Error loading templates: " + error.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE
+                );
+                return;
             }
+            templateComboBox.removeAllItems();
             
-            @Override
-            protected void done() {
-                try {
-                    List<DocumentTemplate> templates = get();
-                    templateComboBox.removeAllItems();
-                    
-                    for (DocumentTemplate template : templates) {
-                        templateComboBox.addItem(template);
-                    }
-                    
-                    if (templates.size() > 0) {
-                        templateComboBox.setSelectedIndex(0);
-                    }
-                    
-                    logger.info("Loaded {} templates", templates.size());
-                } catch (Exception e) {
-                    logger.error("Error loading templates", e);
-                    JOptionPane.showMessageDialog(
-                        DocumentGeneratorPanel.this,
-                        "Error loading templates: " + e.getMessage(),
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE
-                    );
-                }
+            for (DocumentTemplate template : templates) {
+                templateComboBox.addItem(template);
             }
-        };
-        
-        worker.execute();
+            
+            if (templates.size() > 0) {
+                templateComboBox.setSelectedIndex(0);
+            }
+            
+            logger.info("Loaded {} templates", templates.size());
+        }, EDT);
     }
     
     /**
@@ -183,6 +178,12 @@ public class DocumentGeneratorPanel extends JPanel {
             return;
         }
         
+        // Content of a template no longer selected is not needed
+        if (contentRequest != null) {
+            contentRequest.cancel(true);
+            contentRequest = null;
+        }
+        
         // Clear previous fields
         fieldsPanel.removeAll();
         fieldInputs.clear();
@@ -218,13 +219,41 @@ public class DocumentGeneratorPanel extends JPanel {
             fieldsPanel.repaint();
             
             // Update preview
-            updatePreview();
+            if (template.getTemplateContent() != null) {
+                updatePreview();
+            } else {
+                previewArea.setText("");
+                loadTemplateContent(template);
+            }
             
         } catch (Exception e) {
             logger.error("Error parsing template fields", e);
         }
     }
     
+    /**
+     * Fetch the content of a template loaded without it and preview it if it is still selected
+     */
+    private void loadTemplateContent(DocumentTemplate template) {
+        contentRequest = templateDAO.getTemplateContentAsync(template.getTemplateId());
+        contentRequest.whenCompleteAsync((content, error) -> {
+            if (error instanceof CancellationException) {
+                return;
+            }
+            if (error != null) {
+                logger.error("Error loading template content", error);
+                return;
+            }
+            if (content == null) {
+                return;
+            }
+            template.setTemplateContent(content);
+            if (templateComboBox.getSelectedItem() == template) {
+                updatePreview();
+            }
+        }, EDT);
+    }
+    
     /**
      * Format field name for display
      */
@@ -255,7 +284,7 @@ public class DocumentGeneratorPanel extends JPanel {
     private void updatePreview() {
         DocumentTemplate template = (DocumentTemplate) templateComboBox.getSelectedItem();
         
-        if (template == null) {
+        if (template == null || template.getTemplateContent() == null) {
             return;
         }
         
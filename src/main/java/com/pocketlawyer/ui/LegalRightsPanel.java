@@ -11,6 +11,10 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Legal Rights Hub panel for browsing legal rights information
@@ -18,6 +22,8 @@ import java.util.List;
 public class LegalRightsPanel extends JPanel {
     
     private static final Logger logger = LoggerFactory.getLogger(LegalRightsPanel.class);
+    // Runs completions of asynchronous DAO calls on the event dispatch thread
+    private static final Executor EDT = SwingUtilities::invokeLater;
     
     private JComboBox<LegalCategory> categoryComboBox;
     private JList<LegalRight> rightsList;
@@ -27,6 +33,9 @@ public class LegalRightsPanel extends JPanel {
     
     private CategoryDAO categoryDAO;
     private LegalRightsDAO rightsDAO;
+    private CompletableFuture<Boolean> allRightsRequest;
+    private CompletableFuture<List<LegalRight>> rightsRequest;
+    private CompletableFuture<String> detailsRequest;
     
     public LegalRightsPanel() {
         this.categoryDAO = new CategoryDAO();
@@ -131,37 +140,26 @@ public class LegalRightsPanel extends JPanel {
      * Load categories from database
      */
     private void loadCategories() {
-        SwingWorker<List<LegalCategory>, Void> worker = new SwingWorker<List<LegalCategory>, Void>() {
-            @Override
-            protected List<LegalCategory> doInBackground() {
-                return categoryDAO.getAllCategories();
+        categoryDAO.getAllCategoriesAsync().whenCompleteAsync((categories, error) -> {
+            if (error != null) {
+                logger.error("Error loading categories", error);
+                return;
             }
+            categoryComboBox.removeAllItems();
             
-            @Override
-            protected void done() {
-                try {
-                    List<LegalCategory> categories = get();
-                    categoryComboBox.removeAllItems();
-                    
-                    // Add "All Categories" option
-                    LegalCategory allCategories = new LegalCategory(0, "All Categories", "");
-                    categoryComboBox.addItem(allCategories);
-                    
-                    for (LegalCategory category : categories) {
-                        categoryComboBox.addItem(category);
-                    }
-                    
-                    categoryComboBox.setSelectedIndex(0);
-                    showAllRights();
-                    
-                    logger.info("Loaded {} categories", categories.size());
-                } catch (Exception e) {
-                    logger.error("Error loading categories", e);
-                }
+            // Add "All Categories" option
+            LegalCategory allCategories = new LegalCategory(0, "All Categories", "");
+            categoryComboBox.addItem(allCategories);
+            
+            for (LegalCategory category : categories) {
+                categoryComboBox.addItem(category);
             }
-        };
-        
-        worker.execute();
+            
+            categoryComboBox.setSelectedIndex(0);
+            showAllRights();
+            
+            logger.info("Loaded {} categories", categories.size());
+        }, EDT);
     }
     
     /**
@@ -185,48 +183,78 @@ public class LegalRightsPanel extends JPanel {
      * Load rights by category
      */
     private void loadRightsByCategory(int categoryId) {
-        SwingWorker<List<LegalRight>, Void> worker = new SwingWorker<List<LegalRight>, Void>() {
-            @Override
-            protected List<LegalRight> doInBackground() {
-                return rightsDAO.getRightsByCategory(categoryId);
+        CompletableFuture<List<LegalRight>> request =
+            replaceRightsRequest(rightsDAO.getRightsByCategoryAsync(categoryId));
+        request.whenCompleteAsync((rights, error) -> {
+            if (request != rightsRequest || error instanceof CancellationException) {
+                return;
             }
-            
-            @Override
-            protected void done() {
-                try {
-                    List<LegalRight> rights = get();
-                    updateRightsList(rights);
-                } catch (Exception e) {
-                    logger.error("Error loading rights by category", e);
-                }
+            if (error != null) {
+                logger.error("Error loading rights by category", error);
+                return;
             }
-        };
-        
-        worker.execute();
+            updateRightsList(rights);
+        }, EDT);
     }
     
     /**
-     * Show all rights
+     * Show all rights, adding them to the list as they are read
+     * Rights are streamed on the DAO executor and added on the event dispatch
+     * thread; once the load is cancelled its query is cancelled and rights
+     * still on their way are dropped.
      */
     private void showAllRights() {
-        SwingWorker<List<LegalRight>, Void> worker = new SwingWorker<List<LegalRight>, Void>() {
-            @Override
-            protected List<LegalRight> doInBackground() {
-                return rightsDAO.getAllRights();
+        cancelRightsLoads();
+        rightsListModel.clear();
+        detailsArea.setText("");
+        
+        // The rights' callbacks need the request, which only exists once the call is made
+        AtomicReference<CompletableFuture<Boolean>> self = new AtomicReference<>();
+        CompletableFuture<Boolean> request = rightsDAO.forEachRightAsync(right -> EDT.execute(() -> {
+            if (self.get() != allRightsRequest) {
+                return;
             }
-            
-            @Override
-            protected void done() {
-                try {
-                    List<LegalRight> rights = get();
-                    updateRightsList(rights);
-                } catch (Exception e) {
-                    logger.error("Error loading all rights", e);
-                }
+            rightsListModel.addElement(right);
+            if (rightsListModel.size() == 1) {
+                rightsList.setSelectedIndex(0);
             }
-        };
+        }));
+        self.set(request);
+        allRightsRequest = request;
         
-        worker.execute();
+        request.whenCompleteAsync((complete, error) -> {
+            if (request != allRightsRequest || error instanceof CancellationException) {
+                return;
+            }
+            if (error != null || !complete) {
+                logger.error("Error loading all rights", error);
+                return;
+            }
+            logger.info("Loaded {} legal rights", rightsListModel.size());
+        }, EDT);
+    }
+    
+    /**
+     * Make a rights request the one whose rights are shown, cancelling any other load of the list
+     */
+    private CompletableFuture<List<LegalRight>> replaceRightsRequest(CompletableFuture<List<LegalRight>> request) {
+        cancelRightsLoads();
+        rightsRequest = request;
+        return request;
+    }
+    
+    /**
+     * Stop running loads of the rights list, before the list is replaced
+     */
+    private void cancelRightsLoads() {
+        if (allRightsRequest != null) {
+            allRightsRequest.cancel(true);
+            allRightsRequest = null;
+        }
+        if (rightsRequest != null) {
+            rightsRequest.cancel(true);
+            rightsRequest = null;
+        }
     }
     
     /**
@@ -245,39 +273,33 @@ public class LegalRightsPanel extends JPanel {
             return;
         }
         
-        SwingWorker<List<LegalRight>, Void> worker = new SwingWorker<List<LegalRight>, Void>() {
-            @Override
-            protected List<LegalRight> doInBackground() {
-                return rightsDAO.searchRights(searchTerm);
+        CompletableFuture<List<LegalRight>> request = replaceRightsRequest(rightsDAO.searchRightsAsync(searchTerm));
+        request.whenCompleteAsync((rights, error) -> {
+            if (request != rightsRequest || error instanceof CancellationException) {
+                return;
             }
+            if (error != null) {
+                logger.error("Error searching rights", error);
+                return;
+            }
+            updateRightsList(rights);
             
-            @Override
-            protected void done() {
-                try {
-                    List<LegalRight> rights = get();
-                    updateRightsList(rights);
-                    
-                    if (rights.isEmpty()) {
-                        JOptionPane.showMessageDialog(
-                            LegalRightsPanel.this,
-                            "No results found for: " + searchTerm,
-                            "No Results",
-                            JOptionPane.INFORMATION_MESSAGE
-                        );
-                    }
-                } catch (Exception e) {
-                    logger.error("Error searching rights", e);
-                }
+            if (rights.isEmpty()) {
+                JOptionPane.showMessageDialog(
+                    LegalRightsPanel.this,
+                    "No results found for: " + searchTerm,
+                    "No Results",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
             }
-        };
-        
-        worker.execute();
+        }, EDT);
     }
     
     /**
      * Update rights list
      */
     private void updateRightsList(List<LegalRight> rights) {
+        cancelRightsLoads();
         rightsListModel.clear();
         
         for (LegalRight right : rights) {
@@ -301,7 +323,43 @@ public class LegalRightsPanel extends JPanel {
             return;
         }
         
-        // Display details
+        // Details of a right no longer selected are not needed
+        if (detailsRequest != null) {
+            detailsRequest.cancel(true);
+            detailsRequest = null;
+        }
+        
+        showRight(selectedRight);
+        if (selectedRight.getDetails() == null) {
+            loadDetails(selectedRight);
+        }
+    }
+    
+    /**
+     * Fetch the details of a right loaded without them and show them if it is still selected
+     */
+    private void loadDetails(LegalRight right) {
+        detailsRequest = rightsDAO.getRightDetailsAsync(right.getRightId());
+        detailsRequest.whenCompleteAsync((details, error) -> {
+            if (error instanceof CancellationException) {
+                return;
+            }
+            if (error != null) {
+                logger.error("Error loading right details", error);
+                return;
+            }
+            // Empty marks details fetched but absent, so they are not fetched again
+            right.setDetails(details != null ? details : "");
+            if (rightsList.getSelectedValue() == right) {
+                showRight(right);
+            }
+        }, EDT);
+    }
+    
+    /**
+     * Display a right in the details area
+     */
+    private void showRight(LegalRight selectedRight) {
         StringBuilder details = new StringBuilder();
         details.append(selectedRight.getTitle()).append("\n");
         details.append("=".repeat(selectedRight.getTitle().length())).append("\n\n");
@@ -0,0 +1,92 @@
+package com.pocketlawyer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Scoring BM25 through the postings must rank entries exactly like scoring every entry on its own
+ */
+class Bm25IndexTest {
+
+    private static final double TOLERANCE = 1e-12;
+    // Scores are ranked at this precision, so summation order cannot swap near ties
+    private static final double RANK_PRECISION = 1e-9;
+
+    @Test
+    void postingsScoresRankLikeAFullScan() {
+        Fixtures fixtures = new Fixtures(5);
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(fixtures.rows(300, 5), Fixtures.categoryNames(5));
+        Bm25Index bm25 = index.getBm25Index();
+        QueryScratch scratch = new QueryScratch();
+
+        for (String query : fixtures.queries(100)) {
+            scratch.parseQuery(query, index);
+            // explain() scores one entry at a time straight from its fields
+            Map<Integer, Double> scanned = new HashMap<>();
+            for (int doc = 0; doc < index.size(); doc++) {
+                double score = 0.0;
+                for (double share : bm25.explain(scratch, doc)) {
+                    score += share;
+                }
+                if (score > 0.0) {
+                    scanned.put(doc, score);
+                }
+            }
+
+            bm25.score(scratch);
+            Map<Integer, Double> scored = scores(scratch);
+            assertEquals(scanned.keySet(), scored.keySet(), query);
+            scanned.forEach((doc, score) -> assertEquals(score, scored.get(doc), TOLERANCE, query));
+            assertEquals(rank(index, scanned), rank(index, scored), query);
+        }
+    }
+
+    @Test
+    void partitionedScoresEqualGlobalScores() {
+        Fixtures fixtures = new Fixtures(6);
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(fixtures.rows(500, 5), Fixtures.categoryNames(5));
+        Bm25Index bm25 = index.getBm25Index();
+        QueryScratch scratch = new QueryScratch();
+
+        for (String query : fixtures.queries(200)) {
+            scratch.parseQuery(query, index);
+            bm25.score(scratch);
+            Map<Integer, Double> global = scores(scratch);
+
+            scratch.resetCandidates(index.size());
+            for (int partition = index.partitionCount() - 1; partition >= 0; partition--) {
+                bm25.score(scratch, index.getPartitionStart(partition), index.getPartitionEnd(partition));
+            }
+            Map<Integer, Double> partitioned = scores(scratch);
+            assertEquals(global.keySet(), partitioned.keySet(), query);
+            global.forEach((doc, score) -> assertEquals(score, partitioned.get(doc), TOLERANCE, query));
+        }
+    }
+
+    private static Map<Integer, Double> scores(QueryScratch scratch) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int slot = 0; slot < scratch.candidateCount(); slot++) {
+            scores.put(scratch.candidate(slot), scratch.score(slot));
+        }
+        return scores;
+    }
+
+    /**
+     * qa_ids by score descending, then qa_id
+     */
+    private static List<Integer> rank(KnowledgeIndex index, Map<Integer, Double> scores) {
+        List<Integer> docs = new ArrayList<>(scores.keySet());
+        docs.sort(Comparator.<Integer>comparingLong(doc -> -Math.round(scores.get(doc) / RANK_PRECISION))
+            .thenComparingInt(doc -> index.getQA(doc).getQaId()));
+        List<Integer> ranked = new ArrayList<>();
+        docs.forEach(doc -> ranked.add(index.getQA(doc).getQaId()));
+        return ranked;
+    }
+}
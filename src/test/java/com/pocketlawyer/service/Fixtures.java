@@ -0,0 +1,111 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic Q&A rows and queries for the index tests
+ * Words are drawn with a skewed distribution over a fixed vocabulary, so
+ * rows share terms, keyword phrases repeat and some words occur only once.
+ */
+final class Fixtures {
+
+    static final long BASE_TIME = 1_700_000_000_000L;
+
+    private final Random random;
+    private final String[] words;
+
+    Fixtures(long seed) {
+        random = new Random(seed);
+        words = new String[400];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 4 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+    }
+
+    String word() {
+        return words[(int) Math.min(words.length - 1, Math.abs(random.nextGaussian()) * words.length / 3)];
+    }
+
+    LegalQA row(int qaId, int categoryId, long updatedAt) {
+        StringBuilder question = new StringBuilder("What about");
+        for (int i = 0; i < 6; i++) {
+            question.append(' ').append(word());
+        }
+        StringBuilder keywords = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            keywords.append(i > 0 ? "," : "").append(word());
+            if (i == 1) {
+                keywords.append(' ').append(words[random.nextInt(20)]);
+            }
+        }
+        StringBuilder answer = new StringBuilder("Answer ").append(qaId);
+        for (int i = 0; i < 30; i++) {
+            answer.append(' ').append(word());
+        }
+        LegalQA qa = new LegalQA(question.append('?').toString(), answer.toString(), keywords.toString());
+        qa.setQaId(qaId);
+        qa.setCategoryId(categoryId);
+        qa.setPriority(random.nextInt(5));
+        qa.setCreatedAt(new Timestamp(updatedAt));
+        qa.setUpdatedAt(new Timestamp(updatedAt));
+        return qa;
+    }
+
+    List<LegalQA> rows(int count, int categoryCount) {
+        List<LegalQA> rows = new ArrayList<>();
+        for (int qaId = 1; qaId <= count; qaId++) {
+            rows.add(row(qaId, 1 + random.nextInt(categoryCount), BASE_TIME + qaId));
+        }
+        return rows;
+    }
+
+    /**
+     * Queries of known words, words with one letter dropped and made-up words
+     */
+    List<String> queries(int count) {
+        List<String> queries = new ArrayList<>();
+        for (int q = 0; q < count; q++) {
+            StringBuilder query = new StringBuilder();
+            for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+                String word = word();
+                switch (random.nextInt(6)) {
+                    case 0:
+                        word = word.substring(1);
+                        break;
+                    case 1:
+                        word = word + "zq";
+                        break;
+                    default:
+                        break;
+                }
+                query.append(word).append(i % 2 == 0 ? " " : ", ");
+            }
+            queries.add(query.toString());
+        }
+        return queries;
+    }
+
+    Random random() {
+        return random;
+    }
+
+    static Map<Integer, String> categoryNames(int categoryCount) {
+        Map<Integer, String> names = new HashMap<>();
+        for (int id = 1; id <= categoryCount; id++) {
+            names.put(id, "Category " + id);
+        }
+        return names;
+    }
+}
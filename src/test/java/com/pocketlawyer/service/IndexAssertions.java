@@ -0,0 +1,75 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that two indexes over the same rows hold the same entries and score queries alike
+ * Term IDs may differ between them, so scores are compared by qa_id and category_id.
+ */
+final class IndexAssertions {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private IndexAssertions() {
+    }
+
+    static void assertSameEntries(KnowledgeIndex expected, KnowledgeIndex actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int doc = 0; doc < expected.size(); doc++) {
+            LegalQA expectedQA = expected.getQA(doc);
+            LegalQA actualQA = actual.getQA(doc);
+            assertEquals(expectedQA.getQaId(), actualQA.getQaId());
+            assertEquals(expectedQA.getCategoryId(), actualQA.getCategoryId());
+            assertEquals(expectedQA.getPriority(), actualQA.getPriority());
+            assertEquals(expectedQA.getKeywords(), actualQA.getKeywords());
+            assertEquals(expectedQA.getUpdatedAt(), actualQA.getUpdatedAt());
+            assertEquals(expected.getQuestion(doc), actual.getQuestion(doc));
+            assertEquals(expected.getAnswer(doc), actual.getAnswer(doc));
+        }
+        assertEquals(expected.getLastModified(), actual.getLastModified());
+    }
+
+    static void assertSameScores(KnowledgeIndex expected, KnowledgeIndex actual, String query) {
+        assertClose(bm25Scores(expected, query), bm25Scores(actual, query), query);
+        assertClose(posteriors(expected, query), posteriors(actual, query), query);
+    }
+
+    /**
+     * Same keys and values up to rounding, as term IDs and so summation order differ
+     */
+    private static void assertClose(Map<Integer, Double> expected, Map<Integer, Double> actual, String query) {
+        assertEquals(expected.keySet(), actual.keySet(), query);
+        expected.forEach((key, value) -> assertEquals(value, actual.get(key), TOLERANCE, query));
+    }
+
+    /**
+     * BM25 scores by qa_id
+     */
+    private static Map<Integer, Double> bm25Scores(KnowledgeIndex index, String query) {
+        QueryScratch scratch = new QueryScratch();
+        scratch.parseQuery(query, index);
+        index.getBm25Index().score(scratch);
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int slot = 0; slot < scratch.candidateCount(); slot++) {
+            scores.put(index.getQA(scratch.candidate(slot)).getQaId(), scratch.score(slot));
+        }
+        return scores;
+    }
+
+    private static Map<Integer, Double> posteriors(KnowledgeIndex index, String query) {
+        QueryScratch scratch = new QueryScratch();
+        scratch.parseQuery(query, index);
+        CategoryClassifier classifier = index.getClassifier();
+        double[] posteriors = classifier.predict(scratch);
+        Map<Integer, Double> byCategory = new HashMap<>();
+        for (int c = 0; c < classifier.categoryCount(); c++) {
+            byCategory.put(classifier.getCategoryId(c), posteriors[c]);
+        }
+        return byCategory;
+    }
+}
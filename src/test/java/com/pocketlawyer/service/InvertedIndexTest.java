@@ -0,0 +1,96 @@
+package com.pocketlawyer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Scoring only the inverted index's candidates must rank entries exactly like scoring every entry
+ */
+class InvertedIndexTest {
+
+    @Test
+    void candidatesRankLikeAFullScan() {
+        Fixtures fixtures = new Fixtures(3);
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(fixtures.rows(500, 5), Fixtures.categoryNames(5));
+        QueryScratch scratch = new QueryScratch();
+
+        for (String query : fixtures.queries(300)) {
+            scratch.parseQuery(query, index);
+            List<Integer> scanned = rank(index, scratch, IntStream.range(0, index.size()).toArray());
+
+            index.getInvertedIndex().collectCandidates(scratch);
+            assertEquals(scanned, rank(index, scratch, candidates(scratch)), query);
+        }
+    }
+
+    @Test
+    void partitionsTogetherCollectTheSameCandidates() {
+        Fixtures fixtures = new Fixtures(4);
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(fixtures.rows(500, 5), Fixtures.categoryNames(5));
+        QueryScratch scratch = new QueryScratch();
+
+        for (String query : fixtures.queries(200)) {
+            scratch.parseQuery(query, index);
+            index.getInvertedIndex().collectCandidates(scratch);
+            int[] whole = sorted(candidates(scratch));
+
+            // Searched in reverse, as routing may search any partition first
+            scratch.resetCandidates(index.size());
+            for (int partition = index.partitionCount() - 1; partition >= 0; partition--) {
+                index.getInvertedIndex().collectCandidates(scratch, index.getPartitionStart(partition),
+                    index.getPartitionEnd(partition));
+            }
+            assertEquals(Arrays.toString(whole), Arrays.toString(sorted(candidates(scratch))), query);
+        }
+    }
+
+    private static int[] candidates(QueryScratch scratch) {
+        int[] docs = new int[scratch.candidateCount()];
+        for (int slot = 0; slot < docs.length; slot++) {
+            docs[slot] = scratch.candidate(slot);
+        }
+        return docs;
+    }
+
+    private static int[] sorted(int[] docs) {
+        int[] copy = docs.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    /**
+     * qa_ids of the given entries with a keyword or question overlap, by Jaccard score descending and qa_id
+     */
+    private static List<Integer> rank(KnowledgeIndex index, QueryScratch scratch, int[] docs) {
+        List<double[]> scored = new ArrayList<>();
+        for (int doc : docs) {
+            CompiledQA entry = index.getEntry(doc);
+            double score = jaccard(scratch, entry.getKeywordTerms()) + jaccard(scratch, entry.getQuestionTerms());
+            if (score > 0.0) {
+                scored.add(new double[] {score, entry.getQA().getQaId()});
+            }
+        }
+        scored.sort(Comparator.<double[]>comparingDouble(s -> -s[0]).thenComparingDouble(s -> s[1]));
+        List<Integer> ranked = new ArrayList<>();
+        scored.forEach(s -> ranked.add((int) s[1]));
+        return ranked;
+    }
+
+    private static double jaccard(QueryScratch scratch, int[] termIds) {
+        int intersection = 0;
+        for (int t = 0; t < scratch.termCount(); t++) {
+            if (Arrays.binarySearch(termIds, scratch.terms()[t]) >= 0) {
+                intersection++;
+            }
+        }
+        int union = scratch.termCount() + scratch.unknownTermCount() + termIds.length - intersection;
+        return union == 0 ? 0.0 : (double) intersection / union;
+    }
+}
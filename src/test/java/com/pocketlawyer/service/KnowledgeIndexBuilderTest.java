@@ -0,0 +1,77 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A patched index must answer every query exactly like an index built from scratch over the same rows
+ */
+class KnowledgeIndexBuilderTest {
+
+    private static final int CATEGORY_COUNT = 6;
+
+    @Test
+    void patchedIndexScoresAndClassifiesLikeRebuiltIndex() {
+        Fixtures fixtures = new Fixtures(11);
+        Map<Integer, String> names = Fixtures.categoryNames(CATEGORY_COUNT + 1);
+        List<LegalQA> rows = fixtures.rows(400, CATEGORY_COUNT);
+        KnowledgeIndex patched = KnowledgeIndexBuilder.build(rows, names);
+        List<String> queries = fixtures.queries(300);
+
+        // Several rounds, so terms left without entries pile up in the patched dictionary
+        int nextId = rows.size() + 1;
+        for (int round = 0; round < 3; round++) {
+            Random random = fixtures.random();
+            long updatedAt = Fixtures.BASE_TIME + 1_000_000 * (round + 1);
+            Map<Integer, LegalQA> table = new HashMap<>();
+            rows.forEach(row -> table.put(row.getQaId(), row));
+            List<LegalQA> changed = new ArrayList<>();
+
+            for (int i = 0; i < 20; i++) {
+                LegalQA old = rows.get(random.nextInt(rows.size()));
+                int categoryId = random.nextBoolean() ? old.getCategoryId() : 1 + random.nextInt(CATEGORY_COUNT);
+                LegalQA updated = fixtures.row(old.getQaId(), categoryId, updatedAt);
+                table.put(updated.getQaId(), updated);
+                changed.removeIf(row -> row.getQaId() == updated.getQaId());
+                changed.add(updated);
+            }
+            for (int i = 0; i < 15; i++) {
+                LegalQA inserted = fixtures.row(nextId++, 1 + random.nextInt(CATEGORY_COUNT), updatedAt);
+                table.put(inserted.getQaId(), inserted);
+                changed.add(inserted);
+            }
+            // A new category appears and, in the last round, a whole category goes away
+            LegalQA newCategory = fixtures.row(nextId++, CATEGORY_COUNT + 1, updatedAt);
+            table.put(newCategory.getQaId(), newCategory);
+            changed.add(newCategory);
+            List<Integer> removed = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                removed.add(rows.get(random.nextInt(rows.size())).getQaId());
+            }
+            if (round == 2) {
+                rows.stream().filter(row -> row.getCategoryId() == 1).forEach(row -> removed.add(row.getQaId()));
+            }
+            changed.removeIf(row -> removed.contains(row.getQaId()));
+            removed.forEach(table::remove);
+
+            int[] removedIds = removed.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+            patched = KnowledgeIndexBuilder.patch(patched, changed, removedIds, names);
+            rows = new ArrayList<>(table.values());
+            KnowledgeIndex rebuilt = KnowledgeIndexBuilder.build(rows, names);
+
+            assertTrue(patched.getDictionary().size() > rebuilt.getDictionary().size());
+            IndexAssertions.assertSameEntries(rebuilt, patched);
+            for (String query : queries) {
+                IndexAssertions.assertSameScores(rebuilt, patched, query);
+            }
+        }
+    }
+}
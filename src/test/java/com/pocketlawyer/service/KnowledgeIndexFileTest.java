@@ -0,0 +1,127 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Saved index files must load back unchanged, and damaged or stale ones must not load at all
+ */
+class KnowledgeIndexFileTest {
+
+    private static final String FINGERPRINT = "400:400:1700000000400";
+    private static final Map<Integer, String> NAMES = Fixtures.categoryNames(5);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void savedIndexLoadsBackUnchanged() {
+        Fixtures fixtures = new Fixtures(8);
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(fixtures.rows(400, 5), NAMES);
+        KnowledgeIndexFile file = new KnowledgeIndexFile(directory.resolve("knowledge.idx"));
+        file.save(FINGERPRINT, index);
+
+        KnowledgeIndex loaded = file.load(FINGERPRINT, NAMES);
+        assertNotNull(loaded);
+        IndexAssertions.assertSameEntries(index, loaded);
+        for (String query : fixtures.queries(200)) {
+            IndexAssertions.assertSameScores(index, loaded, query);
+        }
+    }
+
+    @Test
+    void patchedIndexLoadsBackUnchanged() {
+        Fixtures fixtures = new Fixtures(9);
+        List<LegalQA> rows = fixtures.rows(300, 5);
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(rows, NAMES);
+        // Leaves terms without entries in the dictionary, which the file must keep
+        index = KnowledgeIndexBuilder.patch(index, Arrays.asList(fixtures.row(301, 2, Fixtures.BASE_TIME + 1000),
+            fixtures.row(5, 3, Fixtures.BASE_TIME + 1000)), new int[] {7, 8, 9}, NAMES);
+        KnowledgeIndexFile file = new KnowledgeIndexFile(directory.resolve("knowledge.idx"));
+        file.save(FINGERPRINT, index);
+
+        KnowledgeIndex loaded = file.load(FINGERPRINT, NAMES);
+        assertNotNull(loaded);
+        assertEquals(index.getDictionary().size(), loaded.getDictionary().size());
+        IndexAssertions.assertSameEntries(index, loaded);
+        for (String query : fixtures.queries(200)) {
+            IndexAssertions.assertSameScores(index, loaded, query);
+        }
+    }
+
+    @Test
+    void staleFingerprintIsNotLoaded() {
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(new Fixtures(10).rows(50, 5), NAMES);
+        KnowledgeIndexFile file = new KnowledgeIndexFile(directory.resolve("knowledge.idx"));
+        file.save(FINGERPRINT, index);
+
+        assertNull(file.load("401:401:1700000000401", NAMES));
+        assertNotNull(file.load(FINGERPRINT, NAMES));
+    }
+
+    @Test
+    void eachSaveWritesTheNextGenerationAndDeletesOlderOnes() throws IOException {
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(new Fixtures(11).rows(50, 5), NAMES);
+        KnowledgeIndexFile file = new KnowledgeIndexFile(directory.resolve("knowledge.idx"));
+        // A file from before generations is cleaned up by the first save
+        Files.write(directory.resolve("knowledge.idx"), new byte[] {1, 2, 3});
+
+        file.save(FINGERPRINT, index);
+        assertEquals(Arrays.asList("knowledge.idx.1"), fileNames());
+        file.save(FINGERPRINT, index);
+        assertEquals(Arrays.asList("knowledge.idx.2"), fileNames());
+        assertNotNull(file.load(FINGERPRINT, NAMES));
+    }
+
+    @Test
+    void damagedBodyIsRejectedByItsChecksum() throws IOException {
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(new Fixtures(12).rows(100, 5), NAMES);
+        KnowledgeIndexFile file = new KnowledgeIndexFile(directory.resolve("knowledge.idx"));
+        file.save(FINGERPRINT, index);
+        Path saved = directory.resolve("knowledge.idx.1");
+
+        byte[] bytes = Files.readAllBytes(saved);
+        bytes[bytes.length - 100] ^= 0x10;
+        Files.write(saved, bytes);
+        assertNull(file.load(FINGERPRINT, NAMES));
+
+        // The next save replaces the damaged generation
+        file.save(FINGERPRINT, index);
+        assertEquals(Arrays.asList("knowledge.idx.2"), fileNames());
+        assertNotNull(file.load(FINGERPRINT, NAMES));
+    }
+
+    @Test
+    void truncatedFileIsRejectedByItsLength() throws IOException {
+        KnowledgeIndex index = KnowledgeIndexBuilder.build(new Fixtures(13).rows(100, 5), NAMES);
+        KnowledgeIndexFile file = new KnowledgeIndexFile(directory.resolve("knowledge.idx"));
+        file.save(FINGERPRINT, index);
+
+        try (FileChannel channel = FileChannel.open(directory.resolve("knowledge.idx.1"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertNull(file.load(FINGERPRINT, NAMES));
+    }
+
+    private List<String> fileNames() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Clusters must hold every near-duplicate of a pair, and only pairs close to the cluster's representative
+ */
+class NearDuplicateDetectorTest {
+
+    // Well below SIMILARITY_THRESHOLD, so MinHash estimation error cannot fail the test
+    private static final double MIN_MEMBER_SIMILARITY = 0.6;
+
+    @Test
+    void clustersDoNotChainThroughIntermediatePairs() {
+        // Neighbouring pairs share 38 of 42 terms, while the ends of the chain share only 28 of 52
+        List<LegalQA> rows = new ArrayList<>();
+        for (int step = 0; step < 7; step++) {
+            Set<String> terms = IntStream.range(2 * step, 40).mapToObj(t -> "kw" + t).collect(Collectors.toSet());
+            IntStream.range(0, 2 * step).forEach(t -> terms.add("kx" + t));
+            rows.add(row(step + 1, terms));
+        }
+
+        List<DuplicateCluster> clusters = NearDuplicateDetector.findClusters(rows);
+        assertFalse(clusters.isEmpty());
+        for (DuplicateCluster cluster : clusters) {
+            for (LegalQA duplicate : cluster.getDuplicates()) {
+                assertTrue(jaccard(cluster.getRepresentative(), duplicate) >= MIN_MEMBER_SIMILARITY,
+                    cluster.toString());
+            }
+            assertFalse(cluster.getRepresentative().getQaId() == 1 && cluster.getDuplicates().stream()
+                .anyMatch(duplicate -> duplicate.getQaId() == 7), cluster.toString());
+        }
+    }
+
+    @Test
+    void everyVariantJoinsItsRepresentative() {
+        // Groups of a base pair and variants that each swap one of its terms
+        List<LegalQA> rows = new ArrayList<>();
+        int qaId = 1;
+        for (int group = 0; group < 20; group++) {
+            String prefix = "g" + (char) ('a' + group);
+            Set<String> base = IntStream.range(0, 30).mapToObj(t -> prefix + t).collect(Collectors.toSet());
+            rows.add(row(qaId++, base));
+            for (int variant = 0; variant < 10; variant++) {
+                Set<String> terms = new HashSet<>(base);
+                terms.remove(prefix + variant);
+                terms.add(prefix + "x" + variant);
+                rows.add(row(qaId++, terms));
+            }
+        }
+
+        List<DuplicateCluster> clusters = NearDuplicateDetector.findClusters(rows);
+        assertEquals(20, clusters.size());
+        for (DuplicateCluster cluster : clusters) {
+            assertEquals(11, cluster.size(), cluster.toString());
+            assertEquals(1, cluster.getRepresentative().getQaId() % 11, cluster.toString());
+        }
+    }
+
+    private static LegalQA row(int qaId, Set<String> terms) {
+        LegalQA qa = new LegalQA(String.join(" ", terms.stream().sorted().collect(Collectors.toList())), "answer", "");
+        qa.setQaId(qaId);
+        qa.setCategoryId(1);
+        return qa;
+    }
+
+    private static double jaccard(LegalQA a, LegalQA b) {
+        Set<String> left = Set.of(a.getQuestion().split(" "));
+        Set<String> right = Set.of(b.getQuestion().split(" "));
+        long shared = left.stream().filter(right::contains).count();
+        return (double) shared / (left.size() + right.size() - shared);
+    }
+}
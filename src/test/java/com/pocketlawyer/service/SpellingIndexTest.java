@@ -0,0 +1,75 @@
+package com.pocketlawyer.service;
+
+import com.pocketlawyer.model.LegalQA;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Misspelled query terms are corrected only where a correction is likely to be right
+ */
+class SpellingIndexTest {
+
+    private static final KnowledgeIndex INDEX = KnowledgeIndexBuilder.build(Arrays.asList(
+        row(1, "How do I end a lease early?", "lease,tenant,notice", "Give notice from the start of the month."),
+        row(2, "Can my landlord keep the security deposit?", "deposit,landlord", "A deposit is returned."),
+        row(3, "Who owns the crops on a farm?", "farm,crops,agriculture", "The farm owner does.")),
+        Fixtures.categoryNames(1));
+
+    @Test
+    void typosAreCorrectedAtReducedWeight() {
+        QueryScratch scratch = parse("secruity depsoit");
+        assertEquals(Arrays.asList("deposit", "security"), terms(scratch));
+        assertEquals(0, scratch.unknownTermCount());
+        for (int t = 0; t < scratch.termCount(); t++) {
+            assertEquals(SpellingIndex.CORRECTED_TERM_WEIGHT, scratch.termWeight(t));
+        }
+
+        scratch = parse("deposit depsoit");
+        assertEquals(Arrays.asList("deposit"), terms(scratch));
+        assertEquals(1.0, scratch.termWeight(0));
+    }
+
+    @Test
+    void commonWordsAreNeitherCorrectedNorCorrections() {
+        // "please" is a deletion away from "lease", and "form" a transposition away from "from"
+        QueryScratch scratch = parse("please help with this form");
+        assertEquals(Arrays.asList("farm"), terms(scratch));
+        assertEquals(2, scratch.unknownTermCount());
+    }
+
+    @Test
+    void shortTermsOnlyGetOneEdit() {
+        assertEquals(Arrays.asList("farm"), terms(parse("fxrm")));
+        assertEquals(Arrays.asList(), terms(parse("fxrxm")));
+        assertEquals(Arrays.asList(), terms(parse("lxsxe")));
+        assertEquals(Arrays.asList("tenant"), terms(parse("tnnant")));
+        assertEquals(Arrays.asList("tenant"), terms(parse("tennnat")));
+    }
+
+    private static QueryScratch parse(String query) {
+        QueryScratch scratch = new QueryScratch();
+        scratch.parseQuery(query, INDEX);
+        return scratch;
+    }
+
+    private static List<String> terms(QueryScratch scratch) {
+        List<String> terms = new ArrayList<>();
+        for (int t = 0; t < scratch.termCount(); t++) {
+            terms.add(INDEX.getDictionary().getTerm(scratch.terms()[t]));
+        }
+        terms.sort(null);
+        return terms;
+    }
+
+    private static LegalQA row(int qaId, String question, String keywords, String answer) {
+        LegalQA qa = new LegalQA(question, answer, keywords);
+        qa.setQaId(qaId);
+        qa.setCategoryId(1);
+        return qa;
+    }
+}
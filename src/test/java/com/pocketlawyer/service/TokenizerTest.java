@@ -0,0 +1,99 @@
+package com.pocketlawyer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The single-pass tokenizer must split text into the same terms as the regular expressions it replaced
+ */
+class TokenizerTest {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+        "a", "an", "the", "is", "are", "was", "were", "be", "been", "being",
+        "have", "has", "had", "do", "does", "did", "will", "would", "should",
+        "could", "may", "might", "can", "i", "you", "he", "she", "it", "we",
+        "they", "what", "which", "who", "when", "where", "why", "how", "my",
+        "your", "his", "her", "its", "our", "their", "this", "that", "these",
+        "those", "am", "to", "of", "in", "for", "on", "with", "as", "by", "at"
+    ));
+
+    // Letters, stop word fragments, digits, separators and non-ASCII letters the old code also split on
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGZ0123456789"
+        + "     \t\n,;.!?-'\"()/&@#%éÉßçñü ’";
+
+    @Test
+    void sampleTextsMatchRegexTokenization() {
+        for (String text : Arrays.asList(
+                "What is the notice period for a TENANT?",
+                "Can my landlord keep the security deposit... after 30 days?!",
+                "e-commerce refund; online-fraud, cyber_crime & FIR",
+                "I am an employee; my employer hasn't paid wages for 2 months.",
+                "Consumer Protection Act, 2019 (Section 35)",
+                "  leading and trailing\tspaces\n",
+                "",
+                "to of in at by")) {
+            assertEquals(regexTerms(text), tokenizerTerms(text), text);
+        }
+    }
+
+    @Test
+    void randomTextsMatchRegexTokenization() {
+        Random random = new Random(6);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0, n = random.nextInt(60); j < n; j++) {
+                text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            // Splice in stop words, which random letters hardly ever spell
+            if (random.nextBoolean()) {
+                text.insert(random.nextInt(text.length() + 1), " the ");
+            }
+            assertEquals(regexTerms(text.toString()), tokenizerTerms(text.toString()), text.toString());
+        }
+    }
+
+    @Test
+    void keywordsSplitLikeOtherText() {
+        // The old keyword path skipped normalization and kept "e-commerce" whole; both paths now agree
+        assertEquals(Arrays.asList("commerce", "refund"), tokenizerTerms("e-commerce,refund"));
+    }
+
+    @Test
+    void longTermsGrowTheBuffer() {
+        String term = String.join("", Collections.nCopies(20, "abcdefgh"));
+        assertEquals(Arrays.asList(term, "tail"), tokenizerTerms(term + " tail"));
+    }
+
+    private static List<String> tokenizerTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        new Tokenizer().tokenize(text, (buffer, length) -> terms.add(new String(buffer, 0, length)));
+        return terms;
+    }
+
+    /**
+     * Terms as ChatbotEngine extracted them from questions, answers and queries before the Tokenizer
+     */
+    private static List<String> regexTerms(String text) {
+        String normalized = text.toLowerCase()
+                                .replaceAll("[^a-z0-9\\s]", " ")
+                                .replaceAll("\\s+", " ")
+                                .trim();
+        if (normalized.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(normalized.split("[\\s,;.!?]+"))
+                .filter(word -> word.length() > 2)
+                .filter(word -> !STOP_WORDS.contains(word))
+                .collect(Collectors.toList());
+    }
+}